@@ -1,7 +1,14 @@
+import java.util.ArrayList;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
 
 /**
  *  The Field class defines an object that models a field full of foxes and
@@ -17,6 +24,27 @@ public class Field {
       _occupants = new FieldOccupant[width][height];
       _hasChanged = new AtomicBoolean();
       _isActive = new AtomicBoolean();
+      _foxCount = new AtomicInteger();
+      _houndCount = new AtomicInteger();
+      _births = new LongAdder();
+      _deaths = new LongAdder();
+      _fingerprint = new AtomicLong();
+      _turns = new LongAdder();
+      _locks = new LongAdder();
+      _contendedLocks = new LongAdder();
+      _lockWaitNanos = new LongAdder();
+      _foxIndex = new AtomicIntegerArray((width + 1) * (height + 1));
+      _foxNeighbors = new AtomicIntegerArray(width * height);
+      _houndNeighbors = new AtomicIntegerArray(width * height);
+
+      // Changes are counted and watched block by block
+      _blockColumns = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      _blockRows = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      _blockChanges = new AtomicIntegerArray(_blockColumns * _blockRows);
+      _watchers = new ArrayList<Set<Thread>>(_blockColumns * _blockRows);
+      for (int i = 0; i < _blockColumns * _blockRows; i++) {
+         _watchers.add(ConcurrentHashMap.newKeySet());
+      }
 
       // Initializes an array of semaphores for access of occupants
       _occupantLocks = new Semaphore[width][height];
@@ -83,6 +111,34 @@ public class Field {
    } // _isActive
 
 
+   /**
+    *  Starts or stops the occupants, waking those waiting to start
+    *
+    *  @param active is true to start the occupants and false to stop them
+    */
+   public void setActive(boolean active) {
+      synchronized (_isActive) {
+         _isActive.set(active);
+         _isActive.notifyAll();
+      }
+   } // setActive
+
+
+   /**
+    *  Waits, without polling, until the field and occupants are active, so
+    *  occupants started while the field is set up cost nothing until then
+    *
+    *  @throws InterruptedException if interrupted while waiting
+    */
+   public void awaitActive() throws InterruptedException {
+      synchronized (_isActive) {
+         while (!_isActive.get()) {
+            _isActive.wait();
+         }
+      }
+   } // awaitActive
+
+
    /**
     *  @return the true if field and occupants have been changed/updated
     */
@@ -91,22 +147,423 @@ public class Field {
    } // hasChanged
 
 
+   /**
+    *  @return the number of foxes currently on the field
+    */
+   public int getFoxCount() {
+       return _foxCount.get();
+   } // getFoxCount
+
+
+   /**
+    *  @return the number of hounds currently on the field
+    */
+   public int getHoundCount() {
+       return _houndCount.get();
+   } // getHoundCount
+
+
+   /**
+    *  @return the number of occupants placed on the field so far
+    */
+   public long getBirths() {
+       return _births.sum();
+   } // getBirths
+
+
+   /**
+    *  @return the number of occupants removed from the field so far
+    */
+   public long getDeaths() {
+       return _deaths.sum();
+   } // getDeaths
+
+
+   /**
+    *  @return the number of cells in the field
+    */
+   public int getCellCount() {
+       return getWidth() * getHeight();
+   } // getCellCount
+
+
    /**
     *  Place an occupant in cell (x, y) and records that a change has been made.
+    *  The fox and hound census is updated for whatever was replaced and
+    *  whatever was placed, so killing an occupant (placing null) counts it out
+    *  as a death and placing one counts it in as a birth. The fingerprint
+    *  swaps the key of the old state of the cell for the new one, and
+    *  occupants waiting for a change near the cell are woken.
     *
     *  @param x is the x-coordinate of the cell to place a mammal in.
     *  @param y is the y-coordinate of the cell to place a mammal in.
     *  @param toAdd is the occupant to place.
     */
    public void setOccupantAt(int x, int y, FieldOccupant toAdd) {
-      _occupants[normalizeIndex(x, WIDTH_INDEX)]
-                [normalizeIndex(y, !WIDTH_INDEX)] = toAdd;
+      int column = normalizeIndex(x, WIDTH_INDEX);
+      int row = normalizeIndex(y, !WIDTH_INDEX);
+      FieldOccupant previous = _occupants[column][row];
+
+      _occupants[column][row] = toAdd;
+      if (previous != null) {
+         updateCensus(previous, -1, column, row);
+         _deaths.increment();
+      }
+      if (toAdd != null) {
+         updateCensus(toAdd, 1, column, row);
+         _births.increment();
+      }
+      _fingerprint.accumulateAndGet(stateKey(column, row, previous)
+                                    ^ stateKey(column, row, toAdd),
+                                    (a, b) -> a ^ b);
 
       // The field and its occupants have changed
       _hasChanged.set(true);
+
+      // Count the change before waking the watchers, so one that started
+      // watching too late to be woken still sees it
+      int block = (row / BLOCK_SIZE) * _blockColumns + column / BLOCK_SIZE;
+      _blockChanges.incrementAndGet(block);
+      for (Thread watcher : _watchers.get(block)) {
+         SimulationClock.getInstance().unpark(watcher);
+      }
    } // setOccupantAt
 
 
+   /**
+    *  @return a 64-bit fingerprint of what occupies every cell, kept up to
+    *          date by setOccupantAt. Fields laid out alike have the same
+    *          fingerprint, so two runs can be compared by their fingerprints
+    *          and a run can tell when it returns to an earlier state.
+    */
+   public long getFingerprint() {
+      return _fingerprint.get();
+   } // getFingerprint
+
+
+   /**
+    *  Gives each state of each cell its own random-looking key, the
+    *  fingerprint being the exclusive or of the keys of the occupied cells.
+    *  The keys are mixed from the cell and state rather than stored, so
+    *  they cost no memory and are the same in every run.
+    *
+    *  @param column is the normalized x-coordinate of the cell
+    *  @param row is the normalized y-coordinate of the cell
+    *  @param occupant of the cell (or null)
+    *
+    *  @return the key of the cell holding that occupant (zero when empty)
+    */
+   private long stateKey(int column, int row, FieldOccupant occupant) {
+      long key = 0;
+      byte state = FieldSnapshot.stateOf(occupant);
+
+      if (state != FieldSnapshot.EMPTY) {
+         // SplitMix64 finalizer over the cell and state
+         key = (((long) column * getHeight() + row) * 3 + state)
+             * 0x9e3779b97f4a7c15L;
+         key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+         key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+         key = key ^ (key >>> 31);
+      }
+
+      return key;
+   } // stateKey
+
+
+   /**
+    *  Counts the changes made so far within r cells of (x, y), for an
+    *  occupant to pass to awaitChange once it has found nothing to do there.
+    *  Changes are counted in blocks of cells, so changes a little farther
+    *  away may be counted too.
+    *
+    *  @param x is the x-coordinate of the center cell.
+    *  @param y is the y-coordinate of the center cell.
+    *  @param r is the radius of the neighborhood.
+    *
+    *  @return the number of changes made in the neighborhood
+    */
+   public long getChangeCount(int x, int y, int r) {
+      return visitBlocksWithin(x, y, r, null);
+   } // getChangeCount
+
+
+   /**
+    *  Parks the calling thread on the clock until a cell within r cells of
+    *  (x, y) changes or the given time passes, so an occupant with nothing
+    *  to do costs nothing until there might be. It returns at once if the
+    *  neighborhood has already changed since the change count was taken.
+    *  Like any park, it may also return early for no reason.
+    *
+    *  @param x is the x-coordinate of the center cell.
+    *  @param y is the y-coordinate of the center cell.
+    *  @param r is the radius of the neighborhood.
+    *  @param changeCount from getChangeCount when the neighborhood was
+    *         last looked at
+    *  @param maxMillis longest simulated time to wait
+    *  @throws InterruptedException if interrupted while waiting
+    */
+   public void awaitChange(int x, int y, int r, long changeCount,
+                           long maxMillis) throws InterruptedException {
+      Thread watcher = Thread.currentThread();
+
+      try {
+         // Each block is watched before its count is read again, so any
+         // change is either counted here or wakes the watcher
+         if (visitBlocksWithin(x, y, r,
+                 block -> _watchers.get(block).add(watcher)) == changeCount) {
+            SimulationClock.getInstance().park(maxMillis);
+         }
+      }
+      finally {
+         visitBlocksWithin(x, y, r,
+                           block -> _watchers.get(block).remove(watcher));
+      }
+   } // awaitChange
+
+
+   /**
+    *  Visits each block holding a cell within r cells of (x, y), wrapping
+    *  around the edges of the field
+    *
+    *  @param x is the x-coordinate of the center cell.
+    *  @param y is the y-coordinate of the center cell.
+    *  @param r is the radius of the neighborhood.
+    *  @param action to take on each block before its changes are counted
+    *         (or null)
+    *
+    *  @return the number of changes made in the blocks
+    */
+   private long visitBlocksWithin(int x, int y, int r, IntConsumer action) {
+      long changes = 0;
+      int columns = Math.min(2 * r + 1, getWidth());
+      int rows = Math.min(2 * r + 1, getHeight());
+      // A neighborhood as wide as the field starts at its edge, so no
+      // block is visited twice
+      int startColumn = columns == getWidth() ? 0
+                               : normalizeIndex(x - r, WIDTH_INDEX);
+      int startRow = rows == getHeight() ? 0
+                               : normalizeIndex(y - r, !WIDTH_INDEX);
+
+      for (int i = 0; i < columns; ) {
+         int column = (startColumn + i) % getWidth();
+         for (int j = 0; j < rows; ) {
+            int row = (startRow + j) % getHeight();
+            int block = (row / BLOCK_SIZE) * _blockColumns
+                      + column / BLOCK_SIZE;
+            if (action != null) {
+               action.accept(block);
+            }
+            changes += _blockChanges.get(block);
+            j += Math.min(BLOCK_SIZE - row % BLOCK_SIZE, getHeight() - row);
+         }
+         i += Math.min(BLOCK_SIZE - column % BLOCK_SIZE, getWidth() - column);
+      }
+
+      return changes;
+   } // visitBlocksWithin
+
+
+   /**
+    *  Adds the given amount to the count of the occupant's kind
+    *
+    *  @param occupant whose kind is being counted (null is ignored)
+    *  @param amount to add to the count
+    *  @param column is the normalized x-coordinate of the occupant's cell
+    *  @param row is the normalized y-coordinate of the occupant's cell
+    */
+   private void updateCensus(FieldOccupant occupant, int amount,
+                             int column, int row) {
+      if (occupant instanceof Fox) {
+         _foxCount.addAndGet(amount);
+         updateFoxIndex(column, row, amount);
+         updateNeighborCounts(_foxNeighbors, column, row, amount);
+      }
+      else if (occupant instanceof Hound) {
+         _houndCount.addAndGet(amount);
+         updateNeighborCounts(_houndNeighbors, column, row, amount);
+      }
+   } // updateCensus
+
+
+   /**
+    *  @param x is the x-coordinate of the cell whose neighbors are counted.
+    *  @param y is the y-coordinate of the cell whose neighbors are counted.
+    *
+    *  @return the number of foxes in the 8 cells around (x, y), kept up to
+    *          date by setOccupantAt so no neighbor is visited
+    */
+   public int getFoxNeighborCount(int x, int y) {
+      return _foxNeighbors.get(cellIndex(x, y));
+   } // getFoxNeighborCount
+
+
+   /**
+    *  @param x is the x-coordinate of the cell whose neighbors are counted.
+    *  @param y is the y-coordinate of the cell whose neighbors are counted.
+    *
+    *  @return the number of hounds in the 8 cells around (x, y), kept up to
+    *          date by setOccupantAt so no neighbor is visited
+    */
+   public int getHoundNeighborCount(int x, int y) {
+      return _houndNeighbors.get(cellIndex(x, y));
+   } // getHoundNeighborCount
+
+
+   /**
+    *  @param x is the x-coordinate of the cell whose neighbors are counted.
+    *  @param y is the y-coordinate of the cell whose neighbors are counted.
+    *
+    *  @return the number of empty cells among the 8 around (x, y)
+    */
+   public int getEmptyNeighborCount(int x, int y) {
+      int index = cellIndex(x, y);
+      return NEIGHBOR_OFFSETS.length - _foxNeighbors.get(index)
+                                     - _houndNeighbors.get(index);
+   } // getEmptyNeighborCount
+
+
+   /**
+    *  Finds a neighbor of the given kind; only needed once the neighbor
+    *  counts show there is one worth acting on. Occupants are reused once
+    *  dead, so the cell it was found in is given too: acting on it is only
+    *  safe once that cell is locked and still holds it, alive.
+    *
+    *  @param x is the x-coordinate of the cell whose neighbors are searched.
+    *  @param y is the y-coordinate of the cell whose neighbors are searched.
+    *  @param kind of occupant to look for
+    *  @param excluded is an occupant to pass over (or null)
+    *  @param cell is set to the normalized cell of the neighbor found
+    *
+    *  @return a neighbor of that kind, or null if there is none
+    */
+   public FieldOccupant getNeighborOf(int x, int y,
+                                      Class<? extends FieldOccupant> kind,
+                                      FieldOccupant excluded, int[] cell) {
+      FieldOccupant found = null;
+
+      for (int i = 0; i < NEIGHBOR_OFFSETS.length && found == null; i++) {
+         int column = normalizeIndex(x + NEIGHBOR_OFFSETS[i][0], WIDTH_INDEX);
+         int row = normalizeIndex(y + NEIGHBOR_OFFSETS[i][1], !WIDTH_INDEX);
+         FieldOccupant neighbor = _occupants[column][row];
+         if (kind.isInstance(neighbor) && neighbor != excluded) {
+            found = neighbor;
+            cell[0] = column;
+            cell[1] = row;
+         }
+      }
+
+      return found;
+   } // getNeighborOf
+
+
+   /**
+    *  Picks one of the empty cells around (x, y) at random from those whose
+    *  neighbor counts pass the test; an occupant finding none knows that
+    *  no empty neighbor is worth acting on.
+    *
+    *  @param x is the x-coordinate of the cell whose neighbors are searched.
+    *  @param y is the y-coordinate of the cell whose neighbors are searched.
+    *  @param test of the fox and hound counts around an empty neighbor
+    *  @param cell is set to the normalized empty cell found
+    *
+    *  @return true if an empty cell passing the test was found
+    */
+   public boolean getEmptyNeighborOf(int x, int y, NeighborTest test,
+                                     int[] cell) {
+      boolean found = false;
+      int first = ThreadLocalRandom.current().nextInt(NEIGHBOR_OFFSETS.length);
+
+      for (int i = 0; i < NEIGHBOR_OFFSETS.length && !found; i++) {
+         int[] offset = NEIGHBOR_OFFSETS[(first + i) % NEIGHBOR_OFFSETS.length];
+         int column = normalizeIndex(x + offset[0], WIDTH_INDEX);
+         int row = normalizeIndex(y + offset[1], !WIDTH_INDEX);
+         int index = cellIndex(column, row);
+         if (_occupants[column][row] == null &&
+                 test.test(_foxNeighbors.get(index),
+                           _houndNeighbors.get(index))) {
+            found = true;
+            cell[0] = column;
+            cell[1] = row;
+         }
+      }
+
+      return found;
+   } // getEmptyNeighborOf
+
+
+   /**
+    *  A test of the number of foxes and of hounds around a cell
+    */
+   public interface NeighborTest {
+      /**
+       * @param foxes is the number of foxes around the cell
+       * @param hounds is the number of hounds around the cell
+       *
+       * @return true if the cell passes
+       */
+      boolean test(int foxes, int hounds);
+   } // NeighborTest
+
+
+   /**
+    *  Counts the foxes within r cells of (x, y) in any direction, that is in
+    *  the (2r + 1) by (2r + 1) square centered on it, wrapping around the
+    *  edges of the field. Answered from the fox index in O(log^2) time.
+    *
+    *  @param x is the x-coordinate of the center cell.
+    *  @param y is the y-coordinate of the center cell.
+    *  @param r is the radius of the square.
+    *
+    *  @return the number of foxes in the square
+    */
+   public int countFoxesWithin(int x, int y, int r) {
+      return countFoxesIn(x - r, y - r, 2 * r + 1, 2 * r + 1);
+   } // countFoxesWithin
+
+
+   /**
+    *  Finds one of the foxes nearest to (x, y), distance being the number of
+    *  king's moves between cells. The distance is found by binary search
+    *  over the fox index and the fox by binary search along the sides of
+    *  the ring at that distance, so no cells are scanned.
+    *
+    *  @param x is the x-coordinate of the center cell.
+    *  @param y is the y-coordinate of the center cell.
+    *  @param r is the farthest distance to look.
+    *  @param cell is set to the normalized cell of the fox found
+    *
+    *  @return true if a fox was found within r
+    */
+   public boolean nearestFoxWithin(int x, int y, int r, int[] cell) {
+      boolean found = false;
+
+      if (r > 0 && countFoxesWithin(x, y, r) > countFoxesIn(x, y, 1, 1)) {
+         // Find the smallest distance that takes in a fox
+         int low = 1;
+         int high = r;
+         while (low < high) {
+            int middle = (low + high) / 2;
+            if (countFoxesWithin(x, y, middle) > countFoxesIn(x, y, 1, 1)) {
+               high = middle;
+            }
+            else {
+               low = middle + 1;
+            }
+         }
+
+         // The ring at that distance is two rows and two shorter columns
+         int d = low;
+         int side = 2 * d + 1;
+         found = findFoxAlong(x - d, y - d, side, true, cell) ||
+                 findFoxAlong(x - d, y + d, side, true, cell) ||
+                 findFoxAlong(x - d, y - d + 1, side - 2, false, cell) ||
+                 findFoxAlong(x + d, y - d + 1, side - 2, false, cell);
+      }
+
+      return found;
+   } // nearestFoxWithin
+
+
    /**
     *  @param x is the x-coordinate of the cell whose contents are queried.
     *  @param y is the y-coordinate of the cell whose contents are queried.
@@ -131,6 +588,80 @@ public class Field {
    } // lockAt
 
 
+   /**
+    *  Locks cell (x, y), counting the lock and, if another thread holds it,
+    *  the time spent waiting for it
+    *
+    *  @param x is the x-coordinate of the cell to lock.
+    *  @param y is the y-coordinate of the cell to lock.
+    *  @throws InterruptedException if interrupted while waiting
+    */
+   public void lock(int x, int y) throws InterruptedException {
+      Semaphore lock = lockAt(x, y);
+
+      _locks.increment();
+      if (!lock.tryAcquire()) {
+         long waitStart = System.nanoTime();
+         lock.acquire();
+         _contendedLocks.increment();
+         _lockWaitNanos.add(System.nanoTime() - waitStart);
+      }
+   } // lock
+
+
+   /**
+    *  Unlocks cell (x, y)
+    *
+    *  @param x is the x-coordinate of the cell to unlock.
+    *  @param y is the y-coordinate of the cell to unlock.
+    */
+   public void unlock(int x, int y) {
+      lockAt(x, y).release();
+   } // unlock
+
+
+   /**
+    *  Records that an occupant has taken a turn
+    */
+   public void countTurn() {
+      _turns.increment();
+   } // countTurn
+
+
+   /**
+    *  @return the number of turns taken by occupants so far
+    */
+   public long getTurns() {
+      return _turns.sum();
+   } // getTurns
+
+
+   /**
+    *  @return the number of cells locked so far
+    */
+   public long getLockCount() {
+      return _locks.sum();
+   } // getLockCount
+
+
+   /**
+    *  @return the number of cells that were locked by another thread when
+    *          asked for
+    */
+   public long getContendedLockCount() {
+      return _contendedLocks.sum();
+   } // getContendedLockCount
+
+
+   /**
+    *  @return the total real time spent waiting for locked cells, in
+    *          nanoseconds
+    */
+   public long getLockWaitNanos() {
+      return _lockWaitNanos.sum();
+   } // getLockWaitNanos
+
+
    /**
     *  @param x is the x-coordinate of the cell whose contents are queried.
     *  @param y is the y-coordinate of the cell whose contents are queried.
@@ -143,55 +674,149 @@ public class Field {
 
 
    /**
-    * @return a collection of the occupants of cells adjacent to the
-    * given cell; collection does not include null objects
+    * Adds to the count held by each of the 8 neighbors of a cell
+    *
+    * @param counts is the plane of neighbor counts to update
+    * @param column is the normalized x-coordinate of the cell
+    * @param row is the normalized y-coordinate of the cell
+    * @param amount to add
+    */
+   private void updateNeighborCounts(AtomicIntegerArray counts, int column,
+                                     int row, int amount) {
+      for (int[] offset : NEIGHBOR_OFFSETS) {
+         counts.addAndGet(cellIndex(column + offset[0], row + offset[1]),
+                          amount);
+      }
+   } // updateNeighborCounts
+
+
+   /**
+    * @param x is the x-coordinate of a cell
+    * @param y is the y-coordinate of a cell
+    *
+    * @return the position of the cell in the neighbor count planes
     */
-   public Set<FieldOccupant> getNeighborsOf(int x, int y) {
-      // For any cell there are 8 neighbors - left, right, above, below,
-      // and the four diagonals. Define a collection of offset pairs that 
-      // we'll step through to access each of the 8 neighbors
-      final int[][] indexOffsets = { {0,1}, {1,0}, {0,-1}, {-1, 0}, {1,1},
-                                     {1, -1}, {-1, 1}, {-1, -1}
-                                   };
-      Set<FieldOccupant> neighbors = new HashSet<FieldOccupant>();
+   private int cellIndex(int x, int y) {
+      return normalizeIndex(x, WIDTH_INDEX) * getHeight()
+           + normalizeIndex(y, !WIDTH_INDEX);
+   } // cellIndex
+
 
-      // Iterate over the set of offsets, adding them to the x and y
-      // indexes to check the neighboring cells
-      for (int[] offset : indexOffsets) {
-         // If there's something at that location, add it to our
-         // neighbor set
-         if (getOccupantAt(x + offset[0], y + offset[1]) != null) {
-            neighbors.add(getOccupantAt(x + offset[0], y + offset[1]));
+   /**
+    * Finds the first fox along a row or column of cells by binary search
+    * over the fox index
+    *
+    * @param x is the x-coordinate of the first cell
+    * @param y is the y-coordinate of the first cell
+    * @param length is the number of cells in the row or column
+    * @param isRow is true to search a row, false to search a column
+    * @param cell is set to the normalized cell of the fox found
+    *
+    * @return true if there is a fox along the cells
+    */
+   private boolean findFoxAlong(int x, int y, int length, boolean isRow,
+                                int[] cell) {
+      boolean found = false;
+
+      if (length > 0 && countFoxesIn(x, y, isRow ? length : 1,
+                                     isRow ? 1 : length) > 0) {
+         int low = 1;
+         int high = length;
+         while (low < high) {
+            int middle = (low + high) / 2;
+            if (countFoxesIn(x, y, isRow ? middle : 1,
+                             isRow ? 1 : middle) > 0) {
+               high = middle;
+            }
+            else {
+               low = middle + 1;
+            }
          }
+
+         int foxX = isRow ? x + low - 1 : x;
+         int foxY = isRow ? y : y + low - 1;
+         cell[0] = normalizeIndex(foxX, WIDTH_INDEX);
+         cell[1] = normalizeIndex(foxY, !WIDTH_INDEX);
+         found = true;
       }
 
-      return neighbors;
-   } // getNeighborsOf
+      return found;
+   } // findFoxAlong
 
 
    /**
-    * @return a collection of the empty cells adjacent to the given cell
+    * Counts the foxes in a rectangle of cells, wrapping around the edges of
+    * the field. A rectangle wider or taller than the field is cut down to
+    * the field, so no cell is counted twice.
+    *
+    * @param x is the x-coordinate of the top left cell
+    * @param y is the y-coordinate of the top left cell
+    * @param columns is the width of the rectangle
+    * @param rows is the height of the rectangle
+    *
+    * @return the number of foxes in the rectangle
     */
-   public Set<int[]> getEmptyNeighborsOf(int x, int y) {
-      // For any cell there are 8 neighbors - left, right, above, below,
-      // and the four diagonals. Define a collection of offset pairs that 
-      // we'll step through to access each of the 8 neighbors
-      final int[][] indexOffsets = { {0,1}, {1,0}, {0,-1}, {-1, 0}, {1,1},
-                                     {1, -1}, {-1, 1}, {-1, -1}
-                                   };
-      Set<int[]> emptyCells = new HashSet<int[]>();
+   private int countFoxesIn(int x, int y, int columns, int rows) {
+      int width = getWidth();
+      int height = getHeight();
+      int left = columns >= width ? 0 : normalizeIndex(x, WIDTH_INDEX);
+      int top = rows >= height ? 0 : normalizeIndex(y, !WIDTH_INDEX);
+      int right = left + Math.min(columns, width);
+      int bottom = top + Math.min(rows, height);
+
+      // Split the rectangle where it wraps past the right or bottom edge
+      int count = 0;
+      for (int wrapX = 0; wrapX < 2; wrapX++) {
+         int fromX = wrapX == 0 ? left : 0;
+         int toX = wrapX == 0 ? Math.min(right, width) : right - width;
+         for (int wrapY = 0; wrapY < 2 && fromX < toX; wrapY++) {
+            int fromY = wrapY == 0 ? top : 0;
+            int toY = wrapY == 0 ? Math.min(bottom, height) : bottom - height;
+            if (fromY < toY) {
+               count += foxPrefix(toX, toY) - foxPrefix(fromX, toY)
+                      - foxPrefix(toX, fromY) + foxPrefix(fromX, fromY);
+            }
+         }
+      }
+
+      return count;
+   } // countFoxesIn
+
 
-      // Iterate over the set of offsets, adding them to the x and y
-      // indexes to check the neighboring cells
-      for (int[] offset : indexOffsets) {
-         // Add to our emptyCell set
-         if (!isOccupied(x + offset[0], y + offset[1])) {
-            emptyCells.add(new int[]{x + offset[0], y + offset[1]});
+   /**
+    * @param columns is the number of columns from the left edge
+    * @param rows is the number of rows from the top edge
+    *
+    * @return the number of foxes in that corner of the field, read from
+    *         the two-dimensional Fenwick tree of fox counts
+    */
+   private int foxPrefix(int columns, int rows) {
+      int stride = getHeight() + 1;
+      int count = 0;
+      for (int i = columns; i > 0; i -= i & -i) {
+         for (int j = rows; j > 0; j -= j & -j) {
+            count += _foxIndex.get(i * stride + j);
          }
       }
+      return count;
+   } // foxPrefix
 
-      return emptyCells;
-   } // getEmptyNeighborsOf
+
+   /**
+    * Adds to the fox count of a cell in the Fenwick tree of fox counts
+    *
+    * @param column is the normalized x-coordinate of the cell
+    * @param row is the normalized y-coordinate of the cell
+    * @param amount to add
+    */
+   private void updateFoxIndex(int column, int row, int amount) {
+      int stride = getHeight() + 1;
+      for (int i = column + 1; i <= getWidth(); i += i & -i) {
+         for (int j = row + 1; j <= getHeight(); j += j & -j) {
+            _foxIndex.addAndGet(i * stride + j, amount);
+         }
+      }
+   } // updateFoxIndex
 
 
    /**
@@ -217,9 +842,10 @@ public class Field {
       // For negative values we convert to positive, mod the bounds and
       // then subtract from the width (i.e., we count from bounds down to
       // 0. If we get say, -12 on a field 10 wide, we convert -12 to
-      // 12, mod with 10 to get 2 and then subract that from 10 to get 8)
+      // 12, mod with 10 to get 2 and then subract that from 10 to get 8).
+      // A multiple of the bounds, say -10, comes out as 10 and wraps to 0
       else {
-         normalizedIndex = bounds - (-index % bounds);
+         normalizedIndex = (bounds - (-index % bounds)) % bounds;
       }
 
       return normalizedIndex;
@@ -238,10 +864,52 @@ public class Field {
    // Boolean for knowing if the field and occupants are active (in simulation)
    private AtomicBoolean _isActive;
 
+   // Live census of the foxes and hounds on the field
+   private AtomicInteger _foxCount;
+   private AtomicInteger _houndCount;
+
+   // Running totals of occupants placed on and removed from the field
+   private LongAdder _births;
+   private LongAdder _deaths;
+
+   // Turns taken, cells locked, locks that had to be waited for and the
+   // time spent waiting
+   private LongAdder _turns;
+   private LongAdder _locks;
+   private LongAdder _contendedLocks;
+   private LongAdder _lockWaitNanos;
+
+   // Exclusive or of the state keys of every occupied cell
+   private AtomicLong _fingerprint;
+
+   // Number of foxes and of hounds around each cell, indexed by cellIndex
+   private AtomicIntegerArray _foxNeighbors;
+   private AtomicIntegerArray _houndNeighbors;
+
+   // Two-dimensional Fenwick tree of fox counts, for counting and finding
+   // foxes in any rectangle without scanning it
+   private AtomicIntegerArray _foxIndex;
+
+   // Changes made to each block of cells and the threads waiting for one,
+   // for blocks numbered row by row
+   private int _blockColumns;
+   private int _blockRows;
+   private AtomicIntegerArray _blockChanges;
+   private ArrayList<Set<Thread>> _watchers;
+
    // Singleton Instance of the field
    private static Field _instance;
 
    // Used in index normalizing method to distinguish between x and y indices
    private final static boolean WIDTH_INDEX = true;
 
-} // Field.java
\ No newline at end of file
+   // Width and height of the blocks changes are watched in
+   private final static int BLOCK_SIZE = 8;
+
+   // Offsets from a cell to each of its 8 neighbors
+   private final static int[][] NEIGHBOR_OFFSETS = { {0,1}, {1,0}, {0,-1},
+                                                     {-1, 0}, {1,1}, {1, -1},
+                                                     {-1, 1}, {-1, -1}
+                                                   };
+
+} // Field.java
\ No newline at end of file
@@ -0,0 +1,61 @@
+/**
+ * The FieldSnapshot class encodes the state of every cell in a field as one
+ * byte per cell, row by row, so the field can be saved, sent or compared
+ * without holding on to its occupants.
+ */
+public class FieldSnapshot {
+   /**
+    * Cannot create instances of FieldSnapshot
+    */
+   private FieldSnapshot() {
+   } // FieldSnapshot
+
+
+   /**
+    * @param occupant of a cell (or null if unoccupied)
+    * @return the state a cell with that occupant is encoded as
+    */
+   public static byte stateOf(FieldOccupant occupant) {
+      byte state = EMPTY;
+      if (occupant instanceof Fox) {
+         state = FOX;
+      }
+      else if (occupant instanceof Hound) {
+         state = HOUND;
+      }
+      return state;
+   } // stateOf
+
+
+   /**
+    * Copies the state of each cell of the field into the given array, the
+    * cell at (x, y) going to index y * width + x
+    *
+    * @param theField to take a snapshot of
+    * @param cells to fill, at least as long as the field has cells
+    */
+   public static void capture(Field theField, byte[] cells) {
+      int width = theField.getWidth();
+      for (int y = 0; y < theField.getHeight(); y++) {
+         for (int x = 0; x < width; x++) {
+            cells[y * width + x] = stateOf(theField.getOccupantAt(x, y));
+         }
+      }
+   } // capture
+
+
+   /**
+    * @param state of a cell
+    * @return the text used to display a cell in that state
+    */
+   public static char toChar(byte state) {
+      return state == FOX ? 'F' : state == HOUND ? 'H' : ' ';
+   } // toChar
+
+
+   // States a cell can be encoded as
+   public static final byte EMPTY = 0;
+   public static final byte FOX = 1;
+   public static final byte HOUND = 2;
+
+} // FieldSnapshot
@@ -1,6 +1,7 @@
 import java.awt.Color;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Foxes can display themselves, breed, and die.
@@ -10,12 +11,46 @@ public class Fox extends FieldOccupant implements Runnable {
    /**
     * Create a fox
     */
-   public Fox(int x, int y) {
-      _cell = new int[]{x, y};
-      _alive = true;
+   private Fox(int x, int y) {
+      _cell = new int[2];
+      bear(x, y);
    } // Fox
 
 
+   /**
+    * Gives birth to a fox, reusing a dead one if there is one to spare
+    *
+    * @param x is the x-coordinate of the cell the fox is born in
+    * @param y is the y-coordinate of the cell the fox is born in
+    * @return the newborn fox
+    */
+   public static Fox create(int x, int y) {
+      Fox fox = _recycled.poll();
+      if (fox == null) {
+         fox = new Fox(x, y);
+      }
+      else {
+         fox.bear(x, y);
+      }
+      return fox;
+   } // create
+
+
+   /**
+    * Brings this fox to life in the given cell
+    *
+    * @param x is the x-coordinate of the cell the fox is born in
+    * @param y is the y-coordinate of the cell the fox is born in
+    */
+   private void bear(int x, int y) {
+      _cell[0] = x;
+      _cell[1] = y;
+      _alive = true;
+      // The fox will be resting on the clock until it stops running
+      SimulationClock.getInstance().register();
+   } // bear
+
+
    /**
     * @return true if this Fox is alive and false otherwise
     */
@@ -29,8 +64,12 @@ public class Fox extends FieldOccupant implements Runnable {
    // (brutally killing the animal object)
    @Override
    public void kill() {
+      // Once it is dead the fox may be reborn elsewhere, so its cell is
+      // read first
+      int x = _cell[0];
+      int y = _cell[1];
       _alive = false;
-      Field.getInstance().setOccupantAt(_cell[0], _cell[1], null);
+      Field.getInstance().setOccupantAt(x, y, null);
    } // kill
 
 
@@ -72,43 +111,45 @@ public class Fox extends FieldOccupant implements Runnable {
             // If the Simulation is active...
             if (Field.getInstance().isActive().get()) {
                // Rest before our Fox starts the day
-               Thread.sleep((new Random().nextInt(50)*10)+750);
+               SimulationClock.getInstance().sleep(
+                       (ThreadLocalRandom.current().nextInt(50)*10)+750);
 
                Field theField = Field.getInstance();
-               int[][] locks = null;
+               TurnScratch scratch = TurnScratch.get();
+               theField.countTurn();
+               int[][] locks = scratch.locks;
                int[] emptyCell = null;
+               int[] mateCell = scratch.mateCell;
                FieldOccupant neighboringFox = null;
-               int houndCount = 0;
-
-               // Iterate over the neighbors and find empty cells
-               // to explore and see if we can make a fox baby
-               for (int[] emptyNeighbor : theField.
-                            getEmptyNeighborsOf(_cell[0], _cell[1])) {
-                  emptyCell = emptyNeighbor;
-               } // for
-
-               // If we see an empty cell, check if we can place a baby fox
+               long changeCount = theField.getChangeCount(_cell[0], _cell[1],
+                                                          NEIGHBORHOOD_RADIUS);
+
+               // Find an empty cell where we can make a fox baby: the counts
+               // around it tell us whether there is another fox to mate with
+               // (we are one of its neighbors) and whether it is safe, so
+               // only cells worth it are picked and a mate is only looked up
+               // for one of those
+               if (theField.getEmptyNeighborCount(_cell[0], _cell[1]) > 0 &&
+                       theField.getEmptyNeighborOf(_cell[0], _cell[1],
+                                                   CAN_BREED,
+                                                   scratch.emptyCell)) {
+                  emptyCell = scratch.emptyCell;
+               }
+
+               // If we see such a cell, check if we can place a baby fox
                if (emptyCell != null && _alive) {
-                  // Iterate over the neighbors and find foxes to mate with and
-                  // the number of hounds to see if its safe
-                  for (FieldOccupant neighbor : theField.
-                            getNeighborsOf(emptyCell[0], emptyCell[1])) {
-                     if (neighbor instanceof Fox && neighbor != this) {
-                        neighboringFox = neighbor;
-                     }
-                     else if (neighbor instanceof Hound) {
-                        houndCount++;
-                     }
-                  } // for
+                  neighboringFox = theField.getNeighborOf(emptyCell[0],
+                                    emptyCell[1], Fox.class, this, mateCell);
 
                   // Now we lock if there are less than 2 hounds nearby and mate
-                  if (houndCount < 2 && neighboringFox != null && _alive &&
+                  if (neighboringFox != null && _alive &&
                                       neighboringFox.isAlive() && !theField.
                                       isOccupied(emptyCell[0], emptyCell[1])) {
                      // Lots of locks to sort and lock in total order through
                      // an anonymous inner class and the array of locks
-                     locks = new int[][]
-                        {_cell, neighboringFox.getCell(), emptyCell};
+                     locks[0] = _cell;
+                     locks[1] = mateCell;
+                     locks[2] = emptyCell;
                      Arrays.sort(locks, (int[] lock1, int[] lock2) -> {
                          int result;
                          if (lock1[0] == lock2[0])
@@ -119,39 +160,74 @@ public class Fox extends FieldOccupant implements Runnable {
                      });
 
                      for (int[] lock : locks) {
-                         theField.lockAt(lock[0], lock[1]).acquire();
+                         theField.lock(lock[0], lock[1]);
                      }
 
-                     // check if fox can still make a baby after getting locks
-                     if (neighboringFox.isAlive() && _alive && !theField.
-                                      isOccupied(emptyCell[0], emptyCell[1])) {
-                        Fox fox = new Fox(emptyCell[0], emptyCell[1]);
+                     // check if fox can still make a baby after getting locks,
+                     // the mate being the same fox, alive where it was found
+                     if (theField.getOccupantAt(mateCell[0], mateCell[1]) ==
+                                      neighboringFox &&
+                                      neighboringFox.isAlive() && _alive &&
+                                      !theField.isOccupied(emptyCell[0],
+                                                           emptyCell[1])) {
+                        Fox fox = create(emptyCell[0], emptyCell[1]);
                         theField.setOccupantAt(emptyCell[0], emptyCell[1], fox);
-                        new Thread(fox).start();
+                        WorkerPool.getInstance().start(fox);
                      }
 
                      // Release locks!
                       for (int[] lock : locks) {
-                          theField.lockAt(lock[0], lock[1]).release();
+                          theField.unlock(lock[0], lock[1]);
                       }
                   } // if there is another safe fox
                } // if there is an emptyCell
+
+               // If no empty neighbor would do, nothing will come of looking
+               // again until something nearby changes, so wait for that
+               if (emptyCell == null && _alive) {
+                  theField.awaitChange(_cell[0], _cell[1], NEIGHBORHOOD_RADIUS,
+                                       changeCount, MAX_IDLE_TIME);
+               }
             } // if simulation is active
             else {
-               Thread.sleep(3);
+               Field.getInstance().awaitActive();
             }
          } // try
          catch (InterruptedException ex) { }
 
       } // while alive
 
+      SimulationClock.getInstance().deregister();
+
+      // Nothing is left of the fox but its body, kept for the next birth
+      _recycled.offer(this);
    } // run
 
 
+   // Whether the counts around an empty cell show another fox to mate
+   // with and fewer than 2 hounds
+   private static final Field.NeighborTest CAN_BREED =
+      (int foxes, int hounds) -> foxes > 1 && hounds < 2;
+
+   // Distance of the farthest cell a fox looks at in a turn: the neighbors
+   // of its empty neighbors
+   private static final int NEIGHBORHOOD_RADIUS = 2;
+
+   // Longest simulated time an idle fox waits for its neighborhood to
+   // change, so a field frozen still lets simulated time pass
+   private static final int MAX_IDLE_TIME = 60000;
+
+   // Most dead foxes kept for reuse
+   private static final int RECYCLE_CAPACITY = 4096;
+
+   // Dead foxes waiting to be reborn
+   private static final ArrayBlockingQueue<Fox> _recycled =
+      new ArrayBlockingQueue<Fox>(RECYCLE_CAPACITY);
+
    // Boolean telling if this Field Occupant is alive or dead
-   private Boolean _alive;
+   private volatile boolean _alive;
 
    // Will store the x and y values associated with the creature's location 
    private final int[] _cell;
 
-} // Fox
\ No newline at end of file
+} // Fox
\ No newline at end of file
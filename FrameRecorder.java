@@ -0,0 +1,293 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * The FrameRecorder class records snapshots of a field to a file so a run
+ * can be watched after the fact with the RecordingPlayer.
+ *
+ * Capturing a frame only copies the cells into a pooled buffer and queues
+ * it; a background thread works out which cells changed since the last
+ * frame written, compresses the frame and writes it. If the writer falls
+ * behind and the pool runs dry, frames are skipped rather than making the
+ * simulation wait on the disk.
+ *
+ * The file is a header (magic, version, width, height) followed by frame
+ * records: a type byte (KEYFRAME or DELTA), the frame number, the simulated
+ * time in milliseconds, the compressed and raw lengths and the deflated data. A
+ * keyframe holds every cell; a delta holds (varint gap, state) pairs for the
+ * cells that changed, the gap counting the unchanged cells skipped over. A
+ * delta that would be larger than a keyframe is written as a keyframe.
+ */
+public class FrameRecorder {
+   /**
+    * Creates the recording file and starts the background writer
+    *
+    * @param fileName of the recording to create
+    * @param theField to record
+    * @param clock whose time is recorded with each frame
+    * @param keyframeInterval number of frames from one keyframe to the next
+    * @throws IOException if the file can't be created
+    */
+   public FrameRecorder(String fileName, Field theField,
+                        SimulationClock clock, int keyframeInterval)
+                                                          throws IOException {
+      _field = theField;
+      _clock = clock;
+      _keyframeInterval = Math.max(1, keyframeInterval);
+      _sinceKeyframe = _keyframeInterval;
+      _cellCount = theField.getCellCount();
+
+      _output = new DataOutputStream(new BufferedOutputStream(
+                            new FileOutputStream(fileName), BUFFER_SIZE));
+      _output.writeInt(MAGIC);
+      _output.writeInt(VERSION);
+      _output.writeInt(theField.getWidth());
+      _output.writeInt(theField.getHeight());
+
+      // Frames travel from the free pool to the pending queue and back
+      _free = new ArrayBlockingQueue<Frame>(QUEUE_SIZE);
+      _pending = new ArrayBlockingQueue<Frame>(QUEUE_SIZE + 1);
+      for (int i = 0; i < QUEUE_SIZE; i++) {
+         _free.add(new Frame(_cellCount));
+      }
+
+      _previous = new byte[_cellCount];
+      _raw = new byte[Math.max(_cellCount, MAX_DELTA_ENTRY)];
+      _compressed = new byte[_raw.length + _raw.length / 1000 + 64];
+      _deflater = new Deflater(Deflater.BEST_SPEED);
+
+      _writer = new Thread(this::writeFrames, "FrameRecorder");
+      _writer.setDaemon(true);
+      _writer.start();
+   } // FrameRecorder
+
+
+   /**
+    * Starts the run's time; frames captured before are stamped with time 0,
+    * so the initial keyframe shows the field as the run starts from it
+    */
+   public void start() {
+      _startTime = _clock.now();
+      _started = true;
+   } // start
+
+
+   /**
+    * Queues a snapshot of the field to be written, never waiting on the
+    * writer; if every buffer is still queued the frame is skipped
+    *
+    * @return true if the frame was queued
+    */
+   public boolean capture() {
+      Frame frame = _free.poll();
+      if (frame == null) {
+         _skipped++;
+         return false;
+      }
+
+      frame.time = _started ? _clock.now() - _startTime : 0;
+      FieldSnapshot.capture(_field, frame.cells);
+      _pending.add(frame);
+      return true;
+   } // capture
+
+
+   /**
+    * @return the number of frames skipped because the writer was behind
+    */
+   public int getSkipped() {
+      return _skipped;
+   } // getSkipped
+
+
+   /**
+    * Writes the frames still queued and closes the recording
+    *
+    * @throws IOException if the recording couldn't be written
+    */
+   public void close() throws IOException {
+      try {
+         _pending.put(CLOSE);
+         _writer.join();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+
+      _deflater.end();
+      _output.close();
+      if (_failure != null) {
+         throw _failure;
+      }
+   } // close
+
+
+   /**
+    * Body of the background writer: takes queued frames, writes them and
+    * returns their buffers to the pool until the recording is closed
+    */
+   private void writeFrames() {
+      try {
+         Frame frame = _pending.take();
+         while (frame != CLOSE) {
+            if (_failure == null) {
+               try {
+                  writeFrame(frame);
+               }
+               catch (IOException e) {
+                  _failure = e;
+               }
+            }
+            _free.add(frame);
+            frame = _pending.take();
+         }
+      }
+      catch (InterruptedException e) {
+         // Nothing more will be written
+      }
+   } // writeFrames
+
+
+   /**
+    * Encodes a frame as a keyframe or as the delta from the last frame
+    * written, compresses it and writes its record
+    *
+    * @param frame to write
+    * @throws IOException if it can't be written
+    */
+   private void writeFrame(Frame frame) throws IOException {
+      boolean isKeyframe = _sinceKeyframe >= _keyframeInterval;
+      byte[] cells = frame.cells;
+      int rawLength = 0;
+
+      if (!isKeyframe) {
+         int gap = 0;
+         for (int i = 0; i < _cellCount && !isKeyframe; i++) {
+            if (cells[i] == _previous[i]) {
+               gap++;
+            }
+            else if (rawLength > _cellCount - MAX_DELTA_ENTRY) {
+               // So much has changed that a keyframe is smaller
+               isKeyframe = true;
+            }
+            else {
+               rawLength = writeVarint(gap, _raw, rawLength);
+               _raw[rawLength++] = cells[i];
+               gap = 0;
+            }
+         }
+      }
+
+      if (isKeyframe) {
+         System.arraycopy(cells, 0, _raw, 0, _cellCount);
+         rawLength = _cellCount;
+         _sinceKeyframe = 0;
+      }
+      _sinceKeyframe++;
+      System.arraycopy(cells, 0, _previous, 0, _cellCount);
+
+      _deflater.reset();
+      _deflater.setInput(_raw, 0, rawLength);
+      _deflater.finish();
+      int compressedLength = _deflater.deflate(_compressed);
+      if (!_deflater.finished()) {
+         throw new IOException("Frame " + _frameCount
+                               + " doesn't fit the compression buffer");
+      }
+
+      _output.writeByte(isKeyframe ? KEYFRAME : DELTA);
+      _output.writeInt(_frameCount);
+      _output.writeLong(frame.time);
+      _output.writeInt(compressedLength);
+      _output.writeInt(rawLength);
+      _output.write(_compressed, 0, compressedLength);
+      _frameCount++;
+   } // writeFrame
+
+
+   /**
+    * Writes a non-negative number seven bits at a time, low bits first
+    *
+    * @param value to write
+    * @param buffer to write it into
+    * @param offset to write it at
+    * @return the offset just past the number
+    */
+   static int writeVarint(int value, byte[] buffer, int offset) {
+      while (value >= 0x80) {
+         buffer[offset++] = (byte) (value | 0x80);
+         value >>>= 7;
+      }
+      buffer[offset++] = (byte) value;
+      return offset;
+   } // writeVarint
+
+
+   /**
+    * A pooled snapshot of the field and when it was taken
+    */
+   private static class Frame {
+      Frame(int cellCount) {
+         cells = new byte[cellCount];
+      } // Frame
+
+      final byte[] cells;
+      long time;
+
+   } // Frame
+
+
+   // Recording file magic ("FHRC") and format version
+   static final int MAGIC = 0x46485243;
+   static final int VERSION = 1;
+
+   // Frame record types
+   static final byte KEYFRAME = 0;
+   static final byte DELTA = 1;
+
+   // Default number of frames from one keyframe to the next
+   public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+   // Largest encoding of one changed cell: a five byte varint and the state
+   private static final int MAX_DELTA_ENTRY = 6;
+
+   // Number of frames that may wait for the writer
+   private static final int QUEUE_SIZE = 8;
+
+   // Size of the output buffer
+   private static final int BUFFER_SIZE = 1 << 16;
+
+   // Marks the end of the recording in the pending queue
+   private static final Frame CLOSE = new Frame(0);
+
+   // The field being recorded, its size and when the run started
+   private final Field _field;
+   private final SimulationClock _clock;
+   private final int _cellCount;
+   private long _startTime;
+   private boolean _started;
+   private final int _keyframeInterval;
+
+   // Empty frame buffers and frames waiting to be written
+   private final ArrayBlockingQueue<Frame> _free;
+   private final ArrayBlockingQueue<Frame> _pending;
+
+   // Frames skipped because no buffer was free (only touched by capture)
+   private int _skipped;
+
+   // Writer state: the last frame written, encoding buffers and the output
+   private final Thread _writer;
+   private final DataOutputStream _output;
+   private final Deflater _deflater;
+   private final byte[] _previous;
+   private final byte[] _raw;
+   private final byte[] _compressed;
+   private int _frameCount;
+   private int _sinceKeyframe;
+   private volatile IOException _failure;
+
+} // FrameRecorder
@@ -1,6 +1,8 @@
 import java.awt.Color;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Hounds can display themselves, eat, breed, and die (from hunger).
@@ -9,12 +11,49 @@ public class Hound extends FieldOccupant implements Runnable {
    /**
     * Create a hound 
     */
-   public Hound(int x, int y) {
-      _cell = new int[]{x, y};
+   private Hound(int x, int y) {
+      _cell = new int[2];
+      bear(x, y);
+   } // Hound
+
+
+   /**
+    * Gives birth to a hound, reusing a dead one if there is one to spare
+    *
+    * @param x is the x-coordinate of the cell the hound is born in
+    * @param y is the y-coordinate of the cell the hound is born in
+    * @return the newborn hound
+    */
+   public static Hound create(int x, int y) {
+      Hound hound = _recycled.poll();
+      if (hound == null) {
+         hound = new Hound(x, y);
+      }
+      else {
+         hound.bear(x, y);
+      }
+      return hound;
+   } // create
+
+
+   /**
+    * Brings this hound to life in the given cell
+    *
+    * @param x is the x-coordinate of the cell the hound is born in
+    * @param y is the y-coordinate of the cell the hound is born in
+    */
+   private void bear(int x, int y) {
+      _cell[0] = x;
+      _cell[1] = y;
       _alive = true;
-      // Start out well-fed
+      _livingHounds.increment();
+      // Start out well-fed; whatever a dead hound had left was already
+      // taken off the total
+      _fedStatus = 0;
       eats();
-   } // Hound
+      // The hound will be resting on the clock until it stops running
+      SimulationClock.getInstance().register();
+   } // bear
 
 
    /**
@@ -42,23 +81,59 @@ public class Hound extends FieldOccupant implements Runnable {
     */
    public boolean getHungrier(int restTime) {
       // Decrease the fed status of this Hound
-      _fedStatus -= restTime;
+      setFedStatus(_fedStatus - restTime);
       return hasStarved();
    } // getHungrier
 
 
    // Reset the fed status of this Hound
    public void eats() {
-      _fedStatus = _houndStarveTime*1000;
+      setFedStatus(_houndStarveTime*1000);
    } // eats
 
 
+   /**
+    * Sets the fed status of this Hound, keeping the total over all living
+    * hounds up to date
+    *
+    * @param fedStatus the new fed status
+    */
+   private void setFedStatus(int fedStatus) {
+      _totalFedStatus.add(fedStatus - _fedStatus);
+      _fedStatus = fedStatus;
+   } // setFedStatus
+
+
+   /**
+    * @return the mean hunger of the living hounds, in simulated milliseconds
+    *         since they were last full, without visiting any of them
+    */
+   public static double getMeanHunger() {
+      long living = _livingHounds.sum();
+      double meanHunger = 0;
+      if (living > 0) {
+         meanHunger = _houndStarveTime * 1000.0
+                    - (double) _totalFedStatus.sum() / living;
+      }
+      return meanHunger;
+   } // getMeanHunger
+
+
    // This method sets this creature's alive status to false
    // (brutally killing the animal object)
    @Override
    public void kill() {
+      // A dead hound no longer counts towards the hunger of the living
+      if (_alive) {
+         _livingHounds.decrement();
+         _totalFedStatus.add(-_fedStatus);
+      }
+      // Once it is dead the hound may be reborn elsewhere, so its cell is
+      // read first
+      int x = _cell[0];
+      int y = _cell[1];
       _alive = false;
-      Field.getInstance().setOccupantAt(_cell[0], _cell[1], null);
+      Field.getInstance().setOccupantAt(x, y, null);
    } // kill
 
 
@@ -98,6 +173,24 @@ public class Hound extends FieldOccupant implements Runnable {
    } // getStarveTime
 
 
+   /**
+    * Sets the hunting radius for this class
+    *
+    * @param huntRadius farthest distance a hound can catch a fox from
+    */
+   public static void setHuntRadius(int huntRadius) {
+      _houndHuntRadius = huntRadius;
+   } // setHuntRadius
+
+
+   /**
+    * @return the hunting radius for Hounds
+    */
+   public static int getHuntRadius() {
+      return _houndHuntRadius;
+   } // getHuntRadius
+
+
    /**
     * @return the occupant cell location on the field
     */
@@ -117,10 +210,12 @@ public class Hound extends FieldOccupant implements Runnable {
          try {
             // If the Simulation is active...
             if (Field.getInstance().isActive().get()) {
-               int restTime = (new Random().nextInt(50)*10)+750;
+               int restTime = (ThreadLocalRandom.current().nextInt(50)*10)+750;
 
-               // Rest befor our Hound starts the day
-               Thread.sleep(restTime);
+               // Rest befor our Hound starts the day, getting hungrier by the
+               // simulated time spent resting
+               SimulationClock.getInstance().sleep(restTime);
+               Field.getInstance().countTurn();
                // If it ate recently, the hounds lives on, otherwise it starves
                if (hasStarved()) {
                   kill();
@@ -128,47 +223,52 @@ public class Hound extends FieldOccupant implements Runnable {
 
                else {
                   Field theField = Field.getInstance();
+                  TurnScratch scratch = TurnScratch.get();
                   FieldOccupant neighboringHound = null;
                   FieldOccupant neighboringFox = null;
-                  int[][] locks = null;
-                  int[] foxCell = null;
+                  int[][] locks = scratch.locks;
+                  int[] foxCell = scratch.foxCell;
+                  int[] houndCell = scratch.houndCell;
                   int[] emptyCell = null;
-                  int foxCount = 0;
+                  int radius = Math.max(NEIGHBORHOOD_RADIUS, _houndHuntRadius);
+                  long changeCount = theField.getChangeCount(_cell[0],
+                                                             _cell[1], radius);
 
-                  // Iterate over the neighbors and find foxes to eat
-                  for (FieldOccupant neighbor : theField.
-                           getNeighborsOf(_cell[0], _cell[1])) {
-                     if (neighbor instanceof Fox) {
-                        neighboringFox = neighbor;
-                     }
-                  } // for
+                  // Find a fox to eat, if the counts say there is one
+                  if (theField.getFoxNeighborCount(_cell[0], _cell[1]) > 0) {
+                     neighboringFox = theField.getNeighborOf(_cell[0],
+                                        _cell[1], Fox.class, null, foxCell);
+                  }
 
                   // If any of its neighbors is a Fox, then the Hound sees if
                   // it can eat the little sucker and if other hounds are
                   // nearby for the possibility of a hound baby too
                   if (neighboringFox != null && neighboringFox.isAlive()) {
-                      foxCell = neighboringFox.getCell();
-                      // Iterate over the neighbors of the fox to find a hound
-                      for (FieldOccupant neighbor : theField.getNeighborsOf
-                                                     (foxCell[0], foxCell[1])) {
-                         if (neighbor instanceof Hound && neighbor != this) {
-                            neighboringHound = neighbor;
-                         }
-                      } // for
+                      // We are one of the fox's neighbors, so another hound
+                      // is only looked for if there is more than one
+                      if (theField.getHoundNeighborCount(foxCell[0],
+                                                         foxCell[1]) > 1) {
+                         neighboringHound = theField.getNeighborOf(foxCell[0],
+                                     foxCell[1], Hound.class, this, houndCell);
+                      }
 
-                     // Lock cells of fox to see if the hound has a meal!
-                     theField.lockAt(foxCell[0], foxCell[1]).acquire();
-                     if (neighboringFox.isAlive()) {
+                     // Lock cells of fox to see if the hound has a meal! It
+                     // must still be the same fox, alive where it was found
+                     theField.lock(foxCell[0], foxCell[1]);
+                     if (theField.getOccupantAt(foxCell[0], foxCell[1]) ==
+                                 neighboringFox && neighboringFox.isAlive()) {
                         neighboringFox.kill();
                         eats();
                         // See if fox had another hound nearby so we can
                         // make a new baby hound in the fox's place
-                        if (neighboringHound != null &&
+                        if (neighboringHound != null && theField.getOccupantAt(
+                                 houndCell[0], houndCell[1]) ==
+                                 neighboringHound &&
                                  neighboringHound.isAlive()) {
-                           Hound hound = new Hound(foxCell[0], foxCell[1]);
+                           Hound hound = create(foxCell[0], foxCell[1]);
                            theField.setOccupantAt(foxCell[0],
                                                   foxCell[1], hound);
-                           new Thread(hound).start();
+                           WorkerPool.getInstance().start(hound);
                         }
                      }
                      // If another hound got to the Fox first, it gets hungrier
@@ -176,45 +276,46 @@ public class Hound extends FieldOccupant implements Runnable {
                         getHungrier(restTime);
                      }
                      // Releases the lock
-                     theField.lockAt(foxCell[0], foxCell[1]).release();
+                     theField.unlock(foxCell[0], foxCell[1]);
                   } // if there's a fox
 
                   // If none of its neighbors is a Fox, it looks farther for
                   // food (neighbors of neighboring empty cells) and a
                   // second chance to make a new hound baby
                   else {
-                      // Iterate over the neighbors and find empty cells
-                      for (int[] emptyNeighbor : theField.
-                              getEmptyNeighborsOf(_cell[0], _cell[1])) {
-                         emptyCell = emptyNeighbor;
-                      } // for
+                      boolean hungry = true;
+
+                      // Find an empty cell with enough foxes around to eat
+                      // and another hound to make a baby hound with, as the
+                      // counts show, and only then are they looked up
+                      if (theField.getEmptyNeighborCount(_cell[0],
+                                                         _cell[1]) > 0 &&
+                              theField.getEmptyNeighborOf(_cell[0], _cell[1],
+                                                          CAN_BREED,
+                                                          scratch.emptyCell)) {
+                         emptyCell = scratch.emptyCell;
+                      }
 
                       if (emptyCell != null) {
-                         // Iterate over the neighbors and find foxes to eat and
-                         // hounds to potentially make baby hounds with
-                         for (FieldOccupant neighbor : theField.
-                                  getNeighborsOf(emptyCell[0], emptyCell[1])) {
-                            if (neighbor instanceof Fox) {
-                               neighboringFox = neighbor;
-                               foxCount++;
-                            }
-                            else if (neighbor instanceof Hound &&
-                                                 neighbor != this) {
-                               neighboringHound = neighbor;
-                            }
-                         } // for
+                         neighboringFox = theField.getNeighborOf(emptyCell[0],
+                                      emptyCell[1], Fox.class, null, foxCell);
+                         neighboringHound = theField.getNeighborOf(
+                                 emptyCell[0], emptyCell[1], Hound.class, this,
+                                 houndCell);
 
                          // See if we have another hound and enough foxes to
                          // make a new baby hound in the empty cell
-                         if (neighboringHound != null && foxCount > 1 &&
+                         if (neighboringHound != null &&
+                                  neighboringFox != null &&
                                   neighboringFox.isAlive() &&
                                   !theField.isOccupied(emptyCell[0],
                                                        emptyCell[1])) {
-                            foxCell = neighboringFox.getCell();
                             // Locks cells to sort and lock in total order with
                             // an anonymous inner class and the array of locks
-                            locks = new int[][] {foxCell, emptyCell};
-                            Arrays.sort(locks, (int[] lock1, int[] lock2) -> {
+                            locks[0] = foxCell;
+                            locks[1] = emptyCell;
+                            Arrays.sort(locks, 0, 2, (int[] lock1,
+                                                      int[] lock2) -> {
                                int result;
                                if (lock1[0] == lock2[0]) {
                                   result = lock2[1] - lock1[1];
@@ -224,57 +325,141 @@ public class Hound extends FieldOccupant implements Runnable {
                                return result;
                             });
 
-                            for (int[] lock : locks) {
-                               theField.lockAt(lock[0], lock[1]).acquire();
+                            for (int i = 0; i < 2; i++) {
+                               theField.lock(locks[i][0], locks[i][1]);
                             }
 
-                            if (neighboringFox.isAlive() &&
+                            if (theField.getOccupantAt(foxCell[0],
+                                     foxCell[1]) == neighboringFox &&
+                                     neighboringFox.isAlive() &&
+                                     theField.getOccupantAt(houndCell[0],
+                                     houndCell[1]) == neighboringHound &&
                                      neighboringHound.isAlive() && !theField
                                      .isOccupied(emptyCell[0], emptyCell[1])) {
                                neighboringFox.kill();
                                eats();
-                               Hound hound = new Hound(emptyCell[0],
-                                                       emptyCell[1]);
+                               Hound hound = create(emptyCell[0],
+                                                    emptyCell[1]);
                                theField.setOccupantAt(emptyCell[0],
                                                       emptyCell[1], hound);
-                               new Thread(hound).start();
+                               WorkerPool.getInstance().start(hound);
+                               hungry = false;
                             }
 
-                            else {
-                               getHungrier(restTime);
-                            }
                             // Releases the lock
-                            for (int[] lock : locks) {
-                               theField.lockAt(lock[0], lock[1]).release();
+                            for (int i = 0; i < 2; i++) {
+                               theField.unlock(locks[i][0], locks[i][1]);
                             }
                          } // if enough hounds and foxes
-                         else {
-                            getHungrier(restTime);
-                         }
-                      } // if emptyCell
-                      else {
+                      } // if emptyCell with enough neighbors
+
+                      // Nothing to eat close by, so look as far as the
+                      // hunting radius allows before going hungry
+                      if (hungry && !huntFarther(theField)) {
                          getHungrier(restTime);
+
+                         // If no empty neighbor would do, nothing will come
+                         // of looking again until something within reach
+                         // changes, so wait for that or until starved. It
+                         // waits a slice at a time, getting hungrier after
+                         // each, so its hunger never falls further behind
+                         // than it does while resting
+                         while (emptyCell == null && !hasStarved() &&
+                                  theField.isActive().get() &&
+                                  theField.getChangeCount(_cell[0], _cell[1],
+                                                    radius) == changeCount) {
+                            long parkedAt = SimulationClock.getInstance()
+                                                           .now();
+                            theField.awaitChange(_cell[0], _cell[1], radius,
+                                                 changeCount, Math.min(
+                                                 _fedStatus, PARK_SLICE));
+                            getHungrier((int) Math.min(_fedStatus,
+                                  SimulationClock.getInstance().now()
+                                                                - parkedAt));
+                         }
                       }
                   } // no fox
 
                } // not starved
             } // if simulation is active
             else {
-                Thread.sleep(3);
+                Field.getInstance().awaitActive();
             }
          } // try
          catch (InterruptedException ex) { }
 
       } // while alive
 
+      SimulationClock.getInstance().deregister();
+
+      // Nothing is left of the hound but its body, kept for the next birth
+      _recycled.offer(this);
    } // run
 
 
+   /**
+    * Looks for the nearest fox within the hunting radius and eats it
+    *
+    * @param theField the hound is hunting on
+    * @return true if the hound caught a fox
+    * @throws InterruptedException if interrupted waiting for the fox's cell
+    */
+   private boolean huntFarther(Field theField) throws InterruptedException {
+      boolean ate = false;
+      int[] foxCell = TurnScratch.get().foxCell;
+
+      if (_houndHuntRadius > 1 && theField.nearestFoxWithin(_cell[0],
+                                    _cell[1], _houndHuntRadius, foxCell)) {
+         // Lock the fox's cell and make sure it's still there to eat
+         theField.lock(foxCell[0], foxCell[1]);
+         FieldOccupant prey = theField.getOccupantAt(foxCell[0],
+                                                     foxCell[1]);
+         if (prey instanceof Fox && prey.isAlive()) {
+            prey.kill();
+            eats();
+            ate = true;
+         }
+         theField.unlock(foxCell[0], foxCell[1]);
+      }
+
+      return ate;
+   } // huntFarther
+
+
    // Default starve time for Hounds
    public static final int DEFAULT_STARVE_TIME = 3;
 
-   // Class variable for all hounds
+   // Default hunting radius: only foxes next door (or next to an empty
+   // cell next door) can be caught
+   public static final int DEFAULT_HUNT_RADIUS = 1;
+
+   // Whether the counts around an empty cell show more than one fox to eat
+   // and another hound to make a baby hound with
+   private static final Field.NeighborTest CAN_BREED =
+      (int foxes, int hounds) -> foxes > 1 && hounds > 1;
+
+   // Distance of the farthest cell a hound looks at next door: the
+   // neighbors of its empty neighbors and of the fox it eats
+   private static final int NEIGHBORHOOD_RADIUS = 2;
+
+   // Longest simulated time a parked hound waits before counting its
+   // hunger, the shortest time it rests between turns
+   private static final int PARK_SLICE = 750;
+
+   // Class variables for all hounds
    private static int _houndStarveTime = DEFAULT_STARVE_TIME;
+   private static int _houndHuntRadius = DEFAULT_HUNT_RADIUS;
+
+   // Number of living hounds and the total of their fed status
+   private static final LongAdder _livingHounds = new LongAdder();
+   private static final LongAdder _totalFedStatus = new LongAdder();
+
+   // Most dead hounds kept for reuse
+   private static final int RECYCLE_CAPACITY = 4096;
+
+   // Dead hounds waiting to be reborn
+   private static final ArrayBlockingQueue<Hound> _recycled =
+      new ArrayBlockingQueue<Hound>(RECYCLE_CAPACITY);
 
    // Will store the x and y values associated with the creature's location 
    private final int[] _cell;
@@ -283,6 +468,6 @@ public class Hound extends FieldOccupant implements Runnable {
    private int _fedStatus;
 
    // Boolean telling if this Field Occupant is alive or dead
-   private Boolean _alive;
+   private volatile boolean _alive;
 
-} // Hound.java
\ No newline at end of file
+} // Hound.java
\ No newline at end of file
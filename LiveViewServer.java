@@ -0,0 +1,354 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The LiveViewServer class serves a live view of the field to browsers on
+ * the local machine, for hosts without a display. The page at "/" draws
+ * the field on a canvas from binary frames streamed in a chunked response
+ * from "/frames".
+ *
+ * The simulation only ever publishes a snapshot and moves on. Each client
+ * has its own thread that sends the cells that changed between the last
+ * snapshot it sent and the newest one, so a slow browser simply skips the
+ * snapshots published while it was busy and never holds anything else up.
+ *
+ * Each frame is a big-endian length followed by a type byte. A keyframe
+ * holds the width, height and every cell; a delta holds a count and then
+ * (cell index, state) pairs for the cells that changed.
+ */
+public class LiveViewServer {
+   /**
+    * Starts serving on the loopback interface only
+    *
+    * @param theField to serve a view of
+    * @param port to listen on (0 for any free port)
+    * @throws IOException if the server can't be started
+    */
+   public LiveViewServer(Field theField, int port) throws IOException {
+      _field = theField;
+      _clients = new AtomicInteger();
+
+      _server = HttpServer.create(new InetSocketAddress(
+                              InetAddress.getLoopbackAddress(), port), 0);
+      _server.createContext("/", this::servePage);
+      _server.createContext("/frames", this::serveFrames);
+
+      // Every streaming client holds a thread for as long as it watches
+      _executor = Executors.newCachedThreadPool(runnable -> {
+         Thread thread = new Thread(runnable, "LiveViewServer");
+         thread.setDaemon(true);
+         return thread;
+      });
+      _server.setExecutor(_executor);
+      _server.start();
+   } // LiveViewServer
+
+
+   /**
+    * @return the port the server is listening on
+    */
+   public int getPort() {
+      return _server.getAddress().getPort();
+   } // getPort
+
+
+   /**
+    * Takes a snapshot of the field for the clients to pick up. Nothing is
+    * captured while no one is watching.
+    */
+   public void publish() {
+      if (_clients.get() > 0) {
+         byte[] snapshot = new byte[_field.getCellCount()];
+         FieldSnapshot.capture(_field, snapshot);
+
+         synchronized (this) {
+            _latest = snapshot;
+            _version++;
+            notifyAll();
+         }
+      }
+   } // publish
+
+
+   /**
+    * Stops the server and disconnects the clients, first giving each a
+    * short while to send the newest snapshot it hasn't yet, so viewers see
+    * the field as published last
+    */
+   public void stop() {
+      synchronized (this) {
+         _stopped = true;
+         notifyAll();
+      }
+
+      _executor.shutdown();
+      try {
+         _executor.awaitTermination(DRAIN_TIME, TimeUnit.MILLISECONDS);
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      _server.stop(0);
+      _executor.shutdownNow();
+   } // stop
+
+
+   /**
+    * Serves the page that draws the streamed frames
+    *
+    * @param exchange with the browser
+    * @throws IOException if the page can't be sent
+    */
+   private void servePage(HttpExchange exchange) throws IOException {
+      try {
+         if (!exchange.getRequestURI().getPath().equals("/")) {
+            exchange.sendResponseHeaders(404, -1);
+         }
+         else {
+            byte[] page = PAGE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                                              "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, page.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+               body.write(page);
+            }
+         }
+      }
+      finally {
+         exchange.close();
+      }
+   } // servePage
+
+
+   /**
+    * Streams frames to one client until it disconnects or the server
+    * stops: a keyframe first, then the changes between the snapshot last
+    * sent to it and the newest one each time a snapshot is published
+    *
+    * @param exchange with the browser
+    * @throws IOException if the stream can't be started
+    */
+   private void serveFrames(HttpExchange exchange) throws IOException {
+      _clients.incrementAndGet();
+      try {
+         exchange.getResponseHeaders().set("Content-Type",
+                                           "application/octet-stream");
+         exchange.getResponseHeaders().set("Cache-Control", "no-store");
+         exchange.sendResponseHeaders(200, 0);
+
+         OutputStream body = exchange.getResponseBody();
+         int cellCount = _field.getCellCount();
+         byte[] sent = null;
+         byte[] message = new byte[KEYFRAME_HEADER + cellCount + 5];
+         long seen = 0;
+
+         // Make sure there is something to send straight away
+         publish();
+
+         while (true) {
+            byte[] snapshot;
+            synchronized (this) {
+               while (_version == seen && !_stopped) {
+                  wait();
+               }
+               // Once stopping, only the newest snapshot is still sent
+               if (_version == seen) {
+                  break;
+               }
+               snapshot = _latest;
+               seen = _version;
+            }
+
+            int length = sent == null ? -1
+                                      : encodeDelta(sent, snapshot, message);
+            if (length < 0) {
+               length = encodeKeyframe(snapshot, message);
+               if (sent == null) {
+                  sent = new byte[cellCount];
+               }
+            }
+            else if (length == DELTA_HEADER) {
+               continue; // nothing changed
+            }
+
+            body.write(message, 0, length);
+            body.flush();
+            System.arraycopy(snapshot, 0, sent, 0, cellCount);
+         } // while
+      }
+      catch (IOException | InterruptedException e) {
+         // The client went away or the server is stopping
+      }
+      finally {
+         _clients.decrementAndGet();
+         exchange.close();
+      }
+   } // serveFrames
+
+
+   /**
+    * Encodes a keyframe holding every cell of a snapshot
+    *
+    * @param snapshot of the field
+    * @param message to encode the frame into
+    * @return the length of the encoded frame
+    */
+   private int encodeKeyframe(byte[] snapshot, byte[] message) {
+      message[4] = KEYFRAME;
+      putInt(message, 5, _field.getWidth());
+      putInt(message, 9, _field.getHeight());
+      System.arraycopy(snapshot, 0, message, KEYFRAME_HEADER,
+                       snapshot.length);
+
+      int length = KEYFRAME_HEADER + snapshot.length;
+      putInt(message, 0, length - 4);
+      return length;
+   } // encodeKeyframe
+
+
+   /**
+    * Encodes the cells that differ between two snapshots
+    *
+    * @param sent is the snapshot the client already has
+    * @param snapshot is the newest snapshot
+    * @param message to encode the frame into
+    * @return the length of the encoded frame, or -1 if a keyframe would be
+    *         smaller
+    */
+   private static int encodeDelta(byte[] sent, byte[] snapshot,
+                                  byte[] message) {
+      int position = DELTA_HEADER;
+      int limit = KEYFRAME_HEADER + snapshot.length;
+
+      for (int i = 0; i < snapshot.length && position >= 0; i++) {
+         if (sent[i] != snapshot[i]) {
+            if (position + 5 > limit) {
+               position = -1;
+            }
+            else {
+               position = putInt(message, position, i);
+               message[position++] = snapshot[i];
+            }
+         }
+      }
+
+      if (position >= 0) {
+         putInt(message, 0, position - 4);
+         message[4] = DELTA;
+         putInt(message, 5, (position - DELTA_HEADER) / 5);
+      }
+      return position;
+   } // encodeDelta
+
+
+   /**
+    * Writes a big-endian int
+    *
+    * @param buffer to write into
+    * @param position to write at
+    * @param value to write
+    * @return the position just past what was written
+    */
+   private static int putInt(byte[] buffer, int position, int value) {
+      buffer[position++] = (byte) (value >>> 24);
+      buffer[position++] = (byte) (value >>> 16);
+      buffer[position++] = (byte) (value >>> 8);
+      buffer[position++] = (byte) value;
+      return position;
+   } // putInt
+
+
+   // Frame types and header sizes (length, type and the fixed fields)
+   private static final byte KEYFRAME = 0;
+   private static final byte DELTA = 1;
+   private static final int KEYFRAME_HEADER = 4 + 1 + 4 + 4;
+   private static final int DELTA_HEADER = 4 + 1 + 4;
+
+   // Longest real time stop waits for the clients to send the newest
+   // snapshot, in milliseconds
+   private static final int DRAIN_TIME = 500;
+
+   // Page that reads the frame stream and draws it, one pixel per cell
+   // scaled up to fit the window
+   private static final String PAGE = String.join("\n",
+      "<!DOCTYPE html>",
+      "<html><head><title>Foxes and Hounds</title>",
+      "<style>",
+      "body { margin: 0; background: #ddd; }",
+      "canvas { image-rendering: pixelated; display: block; margin: auto; }",
+      "</style></head>",
+      "<body><canvas id='field'></canvas><script>",
+      "const COLORS = [[255, 255, 255], [0, 255, 0], [255, 0, 0]];",
+      "const canvas = document.getElementById('field');",
+      "const context = canvas.getContext('2d');",
+      "let image = null;",
+      "function setCell(index, state) {",
+      "  const color = COLORS[state] || COLORS[0];",
+      "  image.data.set(color, index * 4);",
+      "  image.data[index * 4 + 3] = 255;",
+      "}",
+      "function apply(frame) {",
+      "  const view = new DataView(frame.buffer, frame.byteOffset);",
+      "  if (frame[0] === 0) {",
+      "    const width = view.getInt32(1), height = view.getInt32(5);",
+      "    canvas.width = width; canvas.height = height;",
+      "    const scale = Math.max(1, Math.floor(Math.min(",
+      "      window.innerWidth / width, window.innerHeight / height)));",
+      "    canvas.style.width = (width * scale) + 'px';",
+      "    canvas.style.height = (height * scale) + 'px';",
+      "    image = context.createImageData(width, height);",
+      "    for (let i = 0; i < width * height; i++) setCell(i, frame[9 + i]);",
+      "  } else if (image) {",
+      "    const count = view.getInt32(1);",
+      "    for (let i = 0, at = 5; i < count; i++, at += 5) {",
+      "      setCell(view.getInt32(at), frame[at + 4]);",
+      "    }",
+      "  }",
+      "}",
+      "async function watch() {",
+      "  const reader = (await fetch('frames')).body.getReader();",
+      "  let pending = new Uint8Array(0);",
+      "  while (true) {",
+      "    const { value, done } = await reader.read();",
+      "    if (done) break;",
+      "    const joined = new Uint8Array(pending.length + value.length);",
+      "    joined.set(pending); joined.set(value, pending.length);",
+      "    let at = 0;",
+      "    while (joined.length - at >= 4) {",
+      "      const length = new DataView(joined.buffer, at).getInt32(0);",
+      "      if (joined.length - at - 4 < length) break;",
+      "      apply(joined.subarray(at + 4, at + 4 + length));",
+      "      at += 4 + length;",
+      "    }",
+      "    pending = joined.slice(at);",
+      "    if (image) context.putImageData(image, 0, 0);",
+      "  }",
+      "  document.title = 'Foxes and Hounds (ended)';",
+      "}",
+      "watch();",
+      "</script></body></html>");
+
+   // The field being served
+   private final Field _field;
+
+   // The server, the threads streaming to clients and how many there are
+   private final HttpServer _server;
+   private final ExecutorService _executor;
+   private final AtomicInteger _clients;
+
+   // Newest snapshot, its version and whether the server is stopping,
+   // guarded by this server's monitor
+   private byte[] _latest;
+   private long _version;
+   private boolean _stopped;
+
+} // LiveViewServer
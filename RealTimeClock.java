@@ -0,0 +1,78 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The RealTimeClock class runs the simulation against the wall clock,
+ * optionally sped up or slowed down by a constant factor.
+ */
+public class RealTimeClock extends SimulationClock {
+   /**
+    * Creates a clock starting now
+    *
+    * @param speed simulated milliseconds per real millisecond
+    */
+   public RealTimeClock(double speed) {
+      if (!(speed > 0)) {
+         throw new IllegalArgumentException("Clock speed must be positive");
+      }
+      _speed = speed;
+      _start = System.nanoTime();
+   } // RealTimeClock
+
+
+   /**
+    * @return the simulated time in milliseconds since the clock started
+    */
+   @Override
+   public long now() {
+      return (long) ((System.nanoTime() - _start) / 1000000.0 * _speed);
+   } // now
+
+
+   /**
+    * Sleeps the calling thread for the given simulated time, scaled to
+    * real time by the speed of the clock
+    *
+    * @param millis simulated milliseconds to sleep
+    * @throws InterruptedException if interrupted while sleeping
+    */
+   @Override
+   public void sleep(long millis) throws InterruptedException {
+      long nanos = (long) (millis * 1000000.0 / _speed);
+      Thread.sleep(nanos / 1000000, (int) (nanos % 1000000));
+   } // sleep
+
+
+   /**
+    * Parks the calling thread until it is unparked or the given simulated
+    * time, scaled to real time, passes
+    *
+    * @param maxMillis longest simulated time to stay parked
+    * @throws InterruptedException if interrupted while parked
+    */
+   @Override
+   public void park(long maxMillis) throws InterruptedException {
+      LockSupport.parkNanos(this, (long) (maxMillis * 1000000.0 / _speed));
+      if (Thread.interrupted()) {
+         throw new InterruptedException();
+      }
+   } // park
+
+
+   /**
+    * Wakes the given thread if it is parked
+    *
+    * @param thread to unpark
+    */
+   @Override
+   public void unpark(Thread thread) {
+      LockSupport.unpark(thread);
+   } // unpark
+
+
+   // Simulated milliseconds per real millisecond
+   private final double _speed;
+
+   // When the clock started, in System.nanoTime terms
+   private final long _start;
+
+} // RealTimeClock
@@ -0,0 +1,365 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The RecordingPlayer class is a program that replays a recording made by
+ * the FrameRecorder as text. Only the record headers are read to find the
+ * keyframes, so starting part way through a long recording decodes just
+ * the nearest keyframe before it and the deltas in between.
+ */
+public class RecordingPlayer {
+   private static final String USAGE_MESSAGE = "Usage: java RecordingPlayer "
+           + "file [--from int] [--to int] [--delay int]";
+
+
+   /**
+    * Opens a recording and indexes its keyframes
+    *
+    * @param fileName of the recording
+    * @throws IOException if the file can't be read or isn't a recording
+    */
+   public RecordingPlayer(String fileName) throws IOException {
+      _file = new RandomAccessFile(fileName, "r");
+
+      try {
+         if (_file.readInt() != FrameRecorder.MAGIC ||
+                         _file.readInt() != FrameRecorder.VERSION) {
+            throw new IOException(fileName + " isn't a field recording");
+         }
+         _width = _file.readInt();
+         _height = _file.readInt();
+         indexFrames();
+      }
+      catch (IOException e) {
+         _file.close();
+         throw e;
+      }
+
+      _cells = new byte[_width * _height];
+      _inflater = new Inflater();
+      _frame = -1;
+   } // RecordingPlayer
+
+
+   /**
+    * @return the number of complete frames in the recording
+    */
+   public int getFrameCount() {
+      return _frameCount;
+   } // getFrameCount
+
+
+   /**
+    * @return the number of the frame currently decoded (-1 before any)
+    */
+   public int getFrame() {
+      return _frame;
+   } // getFrame
+
+
+   /**
+    * @return the time of the frame currently decoded, in simulated
+    *         milliseconds since recording began
+    */
+   public long getTime() {
+      return _time;
+   } // getTime
+
+
+   /**
+    * @return the state of every cell in the current frame, row by row
+    */
+   public byte[] getCells() {
+      return _cells;
+   } // getCells
+
+
+   /**
+    * Decodes the given frame, starting from the nearest keyframe at or
+    * before it unless it is just ahead of the current frame
+    *
+    * @param frame number to decode
+    * @throws IOException if the recording can't be read
+    */
+   public void seek(int frame) throws IOException {
+      if (frame < 0 || frame >= _frameCount) {
+         throw new IOException("Frame " + frame + " isn't in the recording");
+      }
+
+      // Find the last keyframe at or before the frame
+      int low = 0;
+      int high = _keyframes.size() - 1;
+      while (low < high) {
+         int middle = (low + high + 1) / 2;
+         if (_keyframes.get(middle)[FRAME] <= frame) {
+            low = middle;
+         }
+         else {
+            high = middle - 1;
+         }
+      }
+      long[] keyframe = _keyframes.get(low);
+
+      // Only jump to the keyframe if it is past where we are now
+      if (_frame < keyframe[FRAME] || _frame > frame) {
+         _file.seek(keyframe[OFFSET]);
+         _frame = (int) keyframe[FRAME] - 1;
+      }
+
+      while (_frame < frame) {
+         next();
+      }
+   } // seek
+
+
+   /**
+    * Decodes the frame after the current one
+    *
+    * @throws IOException if the recording can't be read
+    */
+   public void next() throws IOException {
+      byte type = _file.readByte();
+      _frame = _file.readInt();
+      _time = _file.readLong();
+      int compressedLength = _file.readInt();
+      int rawLength = _file.readInt();
+
+      if (compressedLength < 0 || rawLength < 0 ||
+               (type == FrameRecorder.KEYFRAME && rawLength != _cells.length)) {
+         throw new IOException("Frame " + _frame + " is corrupt");
+      }
+      if (_compressed.length < compressedLength) {
+         _compressed = new byte[compressedLength];
+      }
+      if (_raw.length < rawLength) {
+         _raw = new byte[rawLength];
+      }
+      _file.readFully(_compressed, 0, compressedLength);
+
+      try {
+         _inflater.reset();
+         _inflater.setInput(_compressed, 0, compressedLength);
+         int inflated = 0;
+         while (inflated < rawLength) {
+            // Input used up or a dictionary wanted before the frame is
+            // complete means the record was cut short or is corrupt, and
+            // inflating further would get nowhere
+            if (_inflater.finished() || _inflater.needsInput() ||
+                         _inflater.needsDictionary()) {
+               throw new IOException("Frame " + _frame
+                                     + " is truncated or corrupt");
+            }
+            inflated += _inflater.inflate(_raw, inflated, rawLength - inflated);
+         }
+      }
+      catch (DataFormatException e) {
+         throw new IOException("Frame " + _frame + " is corrupt", e);
+      }
+
+      if (type == FrameRecorder.KEYFRAME) {
+         System.arraycopy(_raw, 0, _cells, 0, _cells.length);
+      }
+      else {
+         // Apply each (gap, state) pair of the delta
+         int cell = 0;
+         int position = 0;
+         while (position < rawLength) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+               if (position >= rawLength || shift > 28) {
+                  throw new IOException("Frame " + _frame + " is corrupt");
+               }
+               b = _raw[position++];
+               gap |= (b & 0x7f) << shift;
+               shift += 7;
+            } while (b < 0);
+
+            // A gap past the last cell, or a state missing, is a bad record
+            if (gap < 0 || gap >= _cells.length - cell ||
+                         position >= rawLength) {
+               throw new IOException("Frame " + _frame + " is corrupt");
+            }
+            cell += gap;
+            _cells[cell++] = _raw[position++];
+         }
+      }
+   } // next
+
+
+   /**
+    * Closes the recording
+    *
+    * @throws IOException if it can't be closed
+    */
+   public void close() throws IOException {
+      _inflater.end();
+      _file.close();
+   } // close
+
+
+   /**
+    * Walks the record headers, skipping the frame data, to count the
+    * frames and remember where each keyframe starts. A record cut short by
+    * a run that was stopped abruptly ends the recording.
+    *
+    * @throws IOException if the file can't be read
+    */
+   private void indexFrames() throws IOException {
+      long length = _file.length();
+      long offset = _file.getFilePointer();
+
+      while (offset + RECORD_HEADER_SIZE <= length) {
+         _file.seek(offset);
+         byte type = _file.readByte();
+         int frame = _file.readInt();
+         _file.readLong();
+         int compressedLength = _file.readInt();
+         long end = offset + RECORD_HEADER_SIZE + compressedLength;
+         if (end > length) {
+            break;
+         }
+
+         if (type == FrameRecorder.KEYFRAME) {
+            _keyframes.add(new long[]{frame, offset});
+         }
+         _frameCount = frame + 1;
+         offset = end;
+      }
+
+      if (_keyframes.isEmpty()) {
+         throw new IOException("The recording has no frames");
+      }
+   } // indexFrames
+
+
+   /**
+    * Prints the current frame in the same layout as the Simulation's text
+    * display
+    */
+   private void printFrame() {
+      StringBuilder text = new StringBuilder();
+      text.append("Frame ").append(_frame).append(" at ")
+          .append(_time).append(" ms\n");
+
+      for (int i = 0; i < _width * 2 + 1; i++) {
+         text.append('-');
+      }
+      text.append('\n');
+      for (int y = 0; y < _height; y++) {
+         text.append('|');
+         for (int x = 0; x < _width; x++) {
+            text.append(FieldSnapshot.toChar(_cells[y * _width + x]))
+                .append('|');
+         }
+         text.append('\n');
+      }
+      for (int i = 0; i < _width * 2 + 1; i++) {
+         text.append('-');
+      }
+
+      System.out.println(text);
+   } // printFrame
+
+
+   /**
+    *  Main reads the parameters and plays the recording.
+    */
+   public static void main(String[] args) throws InterruptedException {
+      String fileName = null;
+      int from = 0;
+      int to = Integer.MAX_VALUE;
+      int delay = 100;
+
+      /*
+       *  Process the input parameters. Switches we understand include:
+       *  --from 999 to start at the given frame
+       *  --to 999 to stop after the given frame
+       *  --delay 999 to set the milliseconds between frames
+       */
+      for (int argNum=0; argNum < args.length; argNum++) {
+         try {
+            switch(args[argNum]) {
+               case "--from": // set the first frame
+                  from = Integer.parseInt(args[++argNum]);
+                  break;
+
+               case "--to": // set the last frame
+                  to = Integer.parseInt(args[++argNum]);
+                  break;
+
+               case "--delay": // set the delay between frames
+                  delay = Integer.parseInt(args[++argNum]);
+                  break;
+
+               default: // The recording, or an error if we already have one
+                  if (fileName != null || args[argNum].startsWith("--")) {
+                     System.err.println("Unrecognized switch.");
+                     System.err.println(USAGE_MESSAGE);
+                     System.exit(1);
+                  }
+                  fileName = args[argNum];
+            } // switch
+         }
+         catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Illegal or missing argument.");
+            System.err.println(USAGE_MESSAGE);
+            System.exit(1);
+         }
+      } // for
+
+      if (fileName == null) {
+         System.err.println(USAGE_MESSAGE);
+         System.exit(1);
+      }
+
+      try {
+         RecordingPlayer player = new RecordingPlayer(fileName);
+         to = Math.min(to, player.getFrameCount() - 1);
+
+         for (int frame = from; frame <= to; frame++) {
+            if (frame == from) {
+               player.seek(frame);
+            }
+            else {
+               player.next();
+               Thread.sleep(delay);
+            }
+            player.printFrame();
+         }
+         player.close();
+      }
+      catch (IOException e) {
+         System.err.println("Unable to play recording: " + e.getMessage());
+         System.exit(1);
+      }
+   } // main
+
+
+   // Size of a frame record header: type, frame, time and both lengths
+   private static final int RECORD_HEADER_SIZE = 1 + 4 + 8 + 4 + 4;
+
+   // Indices into a keyframe index entry
+   private static final int FRAME = 0;
+   private static final int OFFSET = 1;
+
+   // The recording, its dimensions, frame count and keyframe locations
+   private final RandomAccessFile _file;
+   private int _width;
+   private int _height;
+   private int _frameCount;
+   private final ArrayList<long[]> _keyframes = new ArrayList<long[]>();
+
+   // The current frame and buffers used to decode the next one
+   private final Inflater _inflater;
+   private final byte[] _cells;
+   private int _frame;
+   private long _time;
+   private byte[] _compressed = new byte[0];
+   private byte[] _raw = new byte[0];
+
+} // RecordingPlayer
@@ -0,0 +1,635 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The ScenarioLoader class seeds a Field from a recorded or designed layout
+ * instead of a random fill. Two formats are understood:
+ *
+ * Run-length encoded text, a header line "x = width, y = height" (lines
+ * starting with '#' are comments) followed by runs such as "12f3b2h$" where
+ * 'f' is a fox, 'h' a hound, 'b' or '.' an empty cell, '$' ends a row and
+ * '!' ends the pattern. A missing run count means 1.
+ *
+ * Indexed-color (palette) PNG images, non-interlaced, of any bit depth.
+ * Palette entries that are mostly green are foxes, mostly red are hounds
+ * and anything else is an empty cell.
+ *
+ * Files are read through memory-mapped windows and decoded as a stream, so
+ * no intermediate strings or whole-image buffers are ever built.
+ */
+public class ScenarioLoader {
+   /**
+    * Opens a scenario file and reads its header
+    *
+    * @param fileName of the scenario to load
+    * @throws IOException if the file can't be read or isn't a scenario
+    */
+   public ScenarioLoader(String fileName) throws IOException {
+      _channel = FileChannel.open(Paths.get(fileName),
+                                  StandardOpenOption.READ);
+      _input = new MappedInput(_channel);
+
+      try {
+         _isPng = _input.ensure(PNG_SIGNATURE.length) && hasPngSignature();
+         if (_isPng) {
+            readPngHeader();
+         }
+         else {
+            readRleHeader();
+         }
+      }
+      catch (IOException | RuntimeException e) {
+         _channel.close();
+         throw e;
+      }
+   } // ScenarioLoader
+
+
+   /**
+    * @return the width of the field described by the scenario
+    */
+   public int getWidth() {
+      return _width;
+   } // getWidth
+
+
+   /**
+    * @return the height of the field described by the scenario
+    */
+   public int getHeight() {
+      return _height;
+   } // getHeight
+
+
+   /**
+    * Places the occupants of the scenario on the given field and starts
+    * them, then closes the scenario file
+    *
+    * @param theField to populate, at least as large as the scenario
+    * @throws IOException if the scenario is malformed or can't be read
+    */
+   public void load(Field theField) throws IOException {
+      try {
+         if (_isPng) {
+            loadPng(theField);
+         }
+         else {
+            loadRle(theField);
+         }
+      }
+      finally {
+         _channel.close();
+      }
+   } // load
+
+
+   /**
+    * Places a fox or hound in a cell and starts it running
+    *
+    * @param theField to place the occupant on
+    * @param x is the x-coordinate of the cell
+    * @param y is the y-coordinate of the cell
+    * @param kind of occupant, one of the FieldSnapshot cell states
+    */
+   private static void place(Field theField, int x, int y, int kind) {
+      if (kind == FieldSnapshot.FOX) {
+         Fox fox = Fox.create(x, y);
+         theField.setOccupantAt(x, y, fox);
+         WorkerPool.getInstance().start(fox);
+      }
+      else if (kind == FieldSnapshot.HOUND) {
+         Hound hound = Hound.create(x, y);
+         theField.setOccupantAt(x, y, hound);
+         WorkerPool.getInstance().start(hound);
+      }
+   } // place
+
+
+   /**
+    * @return true if the file starts with the PNG signature
+    */
+   private boolean hasPngSignature() {
+      boolean matches = true;
+      for (int i = 0; i < PNG_SIGNATURE.length && matches; i++) {
+         matches = _input.get(i) == (PNG_SIGNATURE[i] & 0xff);
+      }
+      return matches;
+   } // hasPngSignature
+
+
+   /**
+    * Reads the "x = width, y = height" header of a run-length encoded file,
+    * skipping comment lines, and leaves the input at the first run
+    *
+    * @throws IOException if no header is found
+    */
+   private void readRleHeader() throws IOException {
+      int c = _input.read();
+
+      // Skip blank and comment lines
+      while (c == '#' || c == '\n' || c == '\r') {
+         if (c == '#') {
+            while (c != -1 && c != '\n') {
+               c = _input.read();
+            }
+         }
+         c = _input.read();
+      }
+
+      // Scan the header line for the two numbers following 'x' and 'y'
+      _width = -1;
+      _height = -1;
+      while (c != -1 && c != '\n') {
+         if (c == 'x' && _width < 0) {
+            _width = readHeaderNumber();
+         }
+         else if (c == 'y' && _height < 0) {
+            _height = readHeaderNumber();
+         }
+         c = _input.read();
+      }
+
+      if (_width < 1 || _height < 1) {
+         throw new IOException("Scenario is missing its x = width, "
+                               + "y = height header");
+      }
+   } // readRleHeader
+
+
+   /**
+    * @return the number following an '=' in the header line
+    * @throws IOException if there is no number
+    */
+   private int readHeaderNumber() throws IOException {
+      int c = _input.peek();
+      while (c == ' ' || c == '\t' || c == '=') {
+         _input.read();
+         c = _input.peek();
+      }
+
+      if (c < '0' || c > '9') {
+         throw new IOException("Malformed scenario header");
+      }
+
+      long number = 0;
+      while (c >= '0' && c <= '9') {
+         number = number * 10 + (_input.read() - '0');
+         if (number > Integer.MAX_VALUE) {
+            throw new IOException("Scenario dimension is too large");
+         }
+         c = _input.peek();
+      }
+
+      return (int) number;
+   } // readHeaderNumber
+
+
+   /**
+    * Streams the runs of a run-length encoded file onto the field
+    *
+    * @param theField to populate
+    * @throws IOException if the runs don't fit the header or are malformed
+    */
+   private void loadRle(Field theField) throws IOException {
+      int x = 0;
+      int y = 0;
+      long run = 0;
+      int c = _input.read();
+
+      while (c != -1 && c != '!') {
+         if (c >= '0' && c <= '9') {
+            run = run * 10 + (c - '0');
+            if (run > Integer.MAX_VALUE) {
+               throw new IOException("Run is too long in row " + y);
+            }
+         }
+         else if (c == '$') {
+            // End of the row (or of several rows, for a counted run)
+            y += run == 0 ? 1 : (int) run;
+            x = 0;
+            run = 0;
+         }
+         else if (c == 'f' || c == 'h' || c == 'b' || c == '.') {
+            int count = run == 0 ? 1 : (int) run;
+            if (y >= _height || count > _width - x) {
+               throw new IOException("Run overflows the field at row " + y);
+            }
+
+            int kind = c == 'f' ? FieldSnapshot.FOX
+                     : c == 'h' ? FieldSnapshot.HOUND : FieldSnapshot.EMPTY;
+            if (kind != FieldSnapshot.EMPTY) {
+               for (int i = x; i < x + count; i++) {
+                  place(theField, i, y, kind);
+               }
+            }
+            x += count;
+            run = 0;
+         }
+         else if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+            throw new IOException("Unexpected '" + (char) c
+                                  + "' in scenario row " + y);
+         }
+         c = _input.read();
+      } // while
+   } // loadRle
+
+
+   /**
+    * Reads the IHDR and PLTE chunks of a PNG and leaves the input at the
+    * first IDAT chunk
+    *
+    * @throws IOException if the image isn't a usable indexed-color PNG
+    */
+   private void readPngHeader() throws IOException {
+      _input.skip(PNG_SIGNATURE.length);
+
+      int length = _input.readInt();
+      if (_input.readInt() != IHDR || length != 13) {
+         throw new IOException("PNG scenario doesn't start with IHDR");
+      }
+      _width = _input.readInt();
+      _height = _input.readInt();
+      _bitDepth = _input.read();
+      int colorType = _input.read();
+      int compression = _input.read();
+      int filter = _input.read();
+      int interlace = _input.read();
+      _input.skip(4); // CRC
+
+      if (colorType != INDEXED_COLOR || compression != 0 || filter != 0) {
+         throw new IOException("PNG scenario must use an indexed-color "
+                               + "palette");
+      }
+      if (_bitDepth != 1 && _bitDepth != 2 && _bitDepth != 4
+                         && _bitDepth != 8) {
+         throw new IOException("PNG scenario has an invalid bit depth");
+      }
+      if (interlace != 0) {
+         throw new IOException("Interlaced PNG scenarios aren't supported");
+      }
+      if (_width < 1 || _height < 1) {
+         throw new IOException("PNG scenario has no cells");
+      }
+
+      // Walk the chunks up to the image data, classifying the palette
+      _palette = null;
+      int type = 0;
+      while (type != IDAT) {
+         length = _input.readInt();
+         type = _input.readInt();
+         if (type == PLTE) {
+            _palette = new int[length / 3];
+            for (int i = 0; i < _palette.length; i++) {
+               _palette[i] = classifyColor(_input.read(), _input.read(),
+                                           _input.read());
+            }
+            _input.skip(length - _palette.length * 3 + 4);
+         }
+         else if (type == IEND || length < 0) {
+            throw new IOException("PNG scenario has no image data");
+         }
+         else if (type != IDAT) {
+            _input.skip(length + 4L);
+         }
+      }
+      _chunkRemaining = length;
+
+      if (_palette == null) {
+         throw new IOException("PNG scenario has no palette");
+      }
+   } // readPngHeader
+
+
+   /**
+    * @return the kind of occupant a palette color stands for
+    */
+   private static int classifyColor(int red, int green, int blue) {
+      int kind = FieldSnapshot.EMPTY;
+      if (green > red + COLOR_MARGIN && green > blue + COLOR_MARGIN) {
+         kind = FieldSnapshot.FOX;
+      }
+      else if (red > green + COLOR_MARGIN && red > blue + COLOR_MARGIN) {
+         kind = FieldSnapshot.HOUND;
+      }
+      return kind;
+   } // classifyColor
+
+
+   /**
+    * Inflates the IDAT chunks straight out of the mapped file one scanline
+    * at a time, unfilters each against the previous line and places the
+    * occupants it describes
+    *
+    * @param theField to populate
+    * @throws IOException if the image data is truncated or corrupt
+    */
+   private void loadPng(Field theField) throws IOException {
+      int bytesPerLine = (int) (((long) _width * _bitDepth + 7) / 8);
+      byte[] line = new byte[bytesPerLine + 1];
+      byte[] previous = new byte[bytesPerLine + 1];
+      Inflater inflater = new Inflater();
+
+      try {
+         for (int y = 0; y < _height; y++) {
+            int filled = 0;
+            while (filled < line.length) {
+               // PNG never uses a preset dictionary, and without one the
+               // inflater would return nothing forever
+               if (inflater.needsDictionary()) {
+                  throw new IOException(
+                        "PNG scenario image data is truncated or corrupt");
+               }
+               // Running out of IDAT data fails in nextImageData
+               if (inflater.needsInput()) {
+                  inflater.setInput(nextImageData());
+               }
+               filled += inflater.inflate(line, filled, line.length - filled);
+               if (inflater.finished() && filled < line.length) {
+                  throw new IOException("PNG scenario image data ends early");
+               }
+            }
+
+            unfilter(line, previous);
+            placeScanline(theField, line, y);
+
+            byte[] swap = previous;
+            previous = line;
+            line = swap;
+         } // for
+      }
+      catch (DataFormatException e) {
+         throw new IOException("PNG scenario image data is corrupt", e);
+      }
+      finally {
+         inflater.end();
+      }
+   } // loadPng
+
+
+   /**
+    * @return a view of the next run of IDAT data in the mapped file,
+    *         moving on to the next IDAT chunk when the current one is used up
+    * @throws IOException if there is no more image data
+    */
+   private ByteBuffer nextImageData() throws IOException {
+      while (_chunkRemaining == 0) {
+         _input.skip(4); // CRC of the finished chunk
+         _chunkRemaining = _input.readInt();
+         if (_chunkRemaining < 0 || _input.readInt() != IDAT) {
+            throw new IOException("PNG scenario image data ends early");
+         }
+      }
+
+      int length = (int) Math.min(_chunkRemaining, MappedInput.WINDOW_SIZE);
+      _chunkRemaining -= length;
+      return _input.slice(length);
+   } // nextImageData
+
+
+   /**
+    * Reverses the PNG filter of a scanline in place. Indexed-color pixels
+    * are never wider than a byte, so the filter unit is always one byte.
+    *
+    * @param line to unfilter, starting with its filter type byte
+    * @param previous unfiltered line above it (all zero for the first)
+    * @throws IOException if the filter type is unknown
+    */
+   private static void unfilter(byte[] line, byte[] previous)
+                                                         throws IOException {
+      switch (line[0]) {
+         case 0: // None
+            break;
+
+         case 1: // Sub
+            for (int i = 2; i < line.length; i++) {
+               line[i] += line[i - 1];
+            }
+            break;
+
+         case 2: // Up
+            for (int i = 1; i < line.length; i++) {
+               line[i] += previous[i];
+            }
+            break;
+
+         case 3: // Average
+            for (int i = 1; i < line.length; i++) {
+               int left = i > 1 ? line[i - 1] & 0xff : 0;
+               line[i] += (byte) ((left + (previous[i] & 0xff)) >> 1);
+            }
+            break;
+
+         case 4: // Paeth
+            for (int i = 1; i < line.length; i++) {
+               int left = i > 1 ? line[i - 1] & 0xff : 0;
+               int above = previous[i] & 0xff;
+               int aboveLeft = i > 1 ? previous[i - 1] & 0xff : 0;
+               int estimate = left + above - aboveLeft;
+               int toLeft = Math.abs(estimate - left);
+               int toAbove = Math.abs(estimate - above);
+               int toAboveLeft = Math.abs(estimate - aboveLeft);
+
+               int predictor;
+               if (toLeft <= toAbove && toLeft <= toAboveLeft) {
+                  predictor = left;
+               }
+               else if (toAbove <= toAboveLeft) {
+                  predictor = above;
+               }
+               else {
+                  predictor = aboveLeft;
+               }
+               line[i] += (byte) predictor;
+            }
+            break;
+
+         default:
+            throw new IOException("PNG scenario uses unknown filter type "
+                                  + line[0]);
+      } // switch
+   } // unfilter
+
+
+   /**
+    * Places the occupants described by one unfiltered scanline
+    *
+    * @param theField to populate
+    * @param line of packed palette indices, after the filter type byte
+    * @param y is the row the scanline describes
+    */
+   private void placeScanline(Field theField, byte[] line, int y) {
+      int pixelsPerByte = 8 / _bitDepth;
+      int mask = (1 << _bitDepth) - 1;
+
+      for (int x = 0; x < _width; x++) {
+         int packed = line[1 + x / pixelsPerByte] & 0xff;
+         int shift = 8 - _bitDepth * (x % pixelsPerByte + 1);
+         int index = (packed >> shift) & mask;
+
+         if (index < _palette.length) {
+            place(theField, x, y, _palette[index]);
+         }
+      }
+   } // placeScanline
+
+
+   /**
+    * Reads a file through a sliding memory-mapped window, remapping as the
+    * reader moves past its end so files of any size can be streamed
+    */
+   private static class MappedInput {
+      /**
+       * @param channel of the file to read from its start
+       */
+      MappedInput(FileChannel channel) throws IOException {
+         _channel = channel;
+         _size = channel.size();
+         _windowStart = 0;
+         _window = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                               Math.min(_size, WINDOW_SIZE));
+      } // MappedInput
+
+
+      /**
+       * Remaps the window if needed so the next count bytes are in it
+       *
+       * @param count of bytes needed, at most the window size
+       * @return false if the file ends before that many bytes
+       */
+      boolean ensure(int count) throws IOException {
+         if (_window.remaining() < count) {
+            long position = _windowStart + _window.position();
+            if (_size - position < count) {
+               return false;
+            }
+            _windowStart = position;
+            _window = _channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(_size - position,
+                                     Math.max(WINDOW_SIZE, count)));
+         }
+         return true;
+      } // ensure
+
+
+      /**
+       * @return the byte at the given offset from the current position
+       *         without consuming anything
+       */
+      int get(int offset) {
+         return _window.get(_window.position() + offset) & 0xff;
+      } // get
+
+
+      /**
+       * @return the next byte without consuming it, or -1 at end of file
+       */
+      int peek() throws IOException {
+         return ensure(1) ? get(0) : -1;
+      } // peek
+
+
+      /**
+       * @return the next byte, or -1 at end of file
+       */
+      int read() throws IOException {
+         return ensure(1) ? _window.get() & 0xff : -1;
+      } // read
+
+
+      /**
+       * @return the next four bytes as a big-endian int
+       * @throws IOException if the file ends first
+       */
+      int readInt() throws IOException {
+         if (!ensure(4)) {
+            throw new IOException("Scenario file ends early");
+         }
+         return _window.getInt();
+      } // readInt
+
+
+      /**
+       * @param length of the view, at most the window size
+       * @return a view of the next length bytes, which are consumed
+       * @throws IOException if the file ends first
+       */
+      ByteBuffer slice(int length) throws IOException {
+         if (!ensure(length)) {
+            throw new IOException("Scenario file ends early");
+         }
+         ByteBuffer view = _window.slice();
+         view.limit(length);
+         _window.position(_window.position() + length);
+         return view;
+      } // slice
+
+
+      /**
+       * Consumes the next count bytes
+       *
+       * @throws IOException if the file ends first
+       */
+      void skip(long count) throws IOException {
+         long position = _windowStart + _window.position() + count;
+         if (position > _size) {
+            throw new IOException("Scenario file ends early");
+         }
+         if (position - _windowStart <= _window.limit()) {
+            _window.position((int) (position - _windowStart));
+         }
+         else {
+            _windowStart = position;
+            _window = _channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                   Math.min(_size - position, WINDOW_SIZE));
+         }
+      } // skip
+
+
+      // Size of each mapped window of the file
+      static final int WINDOW_SIZE = 64 << 20;
+
+      // The file being read, its size and the currently mapped window of it
+      private final FileChannel _channel;
+      private final long _size;
+      private long _windowStart;
+      private MappedByteBuffer _window;
+
+   } // MappedInput
+
+
+   // How much a channel must exceed the others for a palette color to count
+   private static final int COLOR_MARGIN = 64;
+
+   // PNG signature, chunk types and the indexed-color type
+   private static final byte[] PNG_SIGNATURE =
+      { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+   private static final int IHDR = 0x49484452;
+   private static final int PLTE = 0x504c5445;
+   private static final int IDAT = 0x49444154;
+   private static final int IEND = 0x49454e44;
+   private static final int INDEXED_COLOR = 3;
+
+   // The scenario file and the mapped view being decoded
+   private final FileChannel _channel;
+   private final MappedInput _input;
+
+   // True for a PNG scenario, false for run-length encoded text
+   private final boolean _isPng;
+
+   // Dimensions of the scenario
+   private int _width;
+   private int _height;
+
+   // PNG bit depth, the occupant kind of each palette entry and the bytes
+   // left in the IDAT chunk being read
+   private int _bitDepth;
+   private int[] _palette;
+   private long _chunkRemaining;
+
+} // ScenarioLoader
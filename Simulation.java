@@ -1,4 +1,5 @@
 import java.awt.*;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -11,7 +12,22 @@ public class Simulation {
    private static final int CELL_SIZE = 20;
    private static final String USAGE_MESSAGE = "Usage: java Simulation "
            + "[--graphics] [--width int] [--height int] [--starvetime int] "
-           + "[--fox float] [--hound float]";
+           + "[--fox float] [--hound float] [--huntradius int] "
+           + "[--steadytime int] [--duration int] [--clock real|virtual] "
+           + "[--speed float] "
+           + "[--scenario file] [--record file] [--recordinterval int] "
+           + "[--keyinterval int] [--serve int] [--serveinterval int] "
+           + "[--stats file] [--statsinterval int]";
+
+   // Termination reasons reported when the simulation stops itself
+   private static final String EXTINCTION = "extinction";
+   private static final String SATURATION = "saturation";
+   private static final String STEADY_STATE = "steady state";
+   private static final String TIME_LIMIT = "time limit";
+
+   // Simulated milliseconds between checks of the field for changes and
+   // reasons to stop
+   private static final int CHECK_INTERVAL = 10;
 
 
    /**
@@ -76,6 +92,43 @@ public class Simulation {
    } // drawField
 
 
+   /**
+    * Decides whether the simulation has reached a state it can never leave,
+    * using only the live census kept by the field. The field is extinct once
+    * no animals remain and saturated once foxes fill every cell. Without any
+    * hounds nothing can die, so a field that has not changed for the steady
+    * time is considered to be in a steady state. All times are simulated.
+    *
+    * @param theField is the field being simulated
+    * @param quietTime milliseconds since the field last changed
+    * @param steadyTime milliseconds without change that mark a steady state
+    * @param timeLeft milliseconds left before the run's time limit
+    *
+    * @return the reason to stop the simulation, or null to keep going
+    */
+   private static String terminationReason(Field theField, long quietTime,
+                                           long steadyTime, long timeLeft) {
+      String reason = null;
+      int foxCount = theField.getFoxCount();
+      int houndCount = theField.getHoundCount();
+
+      if (foxCount + houndCount == 0) {
+         reason = EXTINCTION;
+      }
+      else if (foxCount == theField.getCellCount()) {
+         reason = SATURATION;
+      }
+      else if (houndCount == 0 && quietTime >= steadyTime) {
+         reason = STEADY_STATE;
+      }
+      else if (timeLeft <= 0) {
+         reason = TIME_LIMIT;
+      }
+
+      return reason;
+   } // terminationReason
+
+
    /**
     *  Main reads the parameters and performs the simulation and animation.
     */
@@ -88,6 +141,24 @@ public class Simulation {
       int starveTime = Hound.DEFAULT_STARVE_TIME;  // Default starvation time
       double probabilityFox = 0.5;                 // Default fox probability 
       double probabilityHound = 0.15;              // Default hound probability
+      int huntRadius = Hound.DEFAULT_HUNT_RADIUS;  // Default hunting radius
+      int steadyTime = 5;                          // Default steady state time
+      int duration = 0;                            // Default no time limit
+      boolean virtualClock = false;                // Default real time clock
+      double speed = 1.0;                          // Default real time speed
+      SimulationClock clock = null;
+      String scenarioFile = null;                  // Default random fill
+      ScenarioLoader scenario = null;
+      String recordFile = null;                    // Default no recording
+      int recordInterval = 100;                    // Default frame interval
+      int keyframeInterval = FrameRecorder.DEFAULT_KEYFRAME_INTERVAL;
+      FrameRecorder recorder = null;
+      int servePort = -1;                          // Default no live view
+      int serveInterval = 100;                     // Default live view rate
+      LiveViewServer liveView = null;
+      String statsFile = null;                     // Default no statistics
+      int statsInterval = 1000;                    // Default sample interval
+      StatsSampler sampler = null;
       boolean graphicsMode = false;
       Random randomGenerator = new Random();
       Field theField = null;
@@ -108,6 +179,26 @@ public class Simulation {
        *  --starvetime 999 to set the "starve time"
        *  --fox 0.999 to set the "fox probability"
        *  --hound 0.999 to set the "hound probability"
+       *  --huntradius 999 to set how far away a hound can catch a fox
+       *  --steadytime 999 to set the seconds without change (and without
+       *                   hounds) that end the simulation in a steady state
+       *  --duration 999 to stop after the given simulated seconds
+       *  --clock real or virtual to run against the wall clock or as fast as
+       *                          the occupants can go
+       *  --speed 9.99 to set the simulated seconds per real second of the
+       *               real time clock
+       *  --scenario file to start from a run-length encoded or PNG layout
+       *                  instead of a random fill (its size overrides
+       *                  --width and --height)
+       *  --record file to record the run for the RecordingPlayer
+       *  --recordinterval 999 to set the milliseconds between recorded frames
+       *  --keyinterval 999 to set the number of frames between keyframes
+       *  --serve 999 to serve a live view at http://localhost:999/
+       *  --serveinterval 999 to set the milliseconds between live view frames
+       *  --stats file to write population statistics (CSV for a .csv file,
+       *               otherwise columnar binary)
+       *  --statsinterval 999 to set the simulated milliseconds between
+       *                      statistics samples
        */
       for (int argNum=0; argNum < args.length; argNum++) {
          try {
@@ -136,6 +227,72 @@ public class Simulation {
                   probabilityHound = Double.parseDouble(args[++argNum]);
                   break;
 
+               case "--huntradius": // set the hounds' hunting radius
+                  huntRadius = Integer.parseInt(args[++argNum]);
+                  break;
+
+               case "--steadytime": // set 'steady state time'
+                  steadyTime = Integer.parseInt(args[++argNum]);
+                  break;
+
+               case "--duration": // set the simulated time limit
+                  duration = Integer.parseInt(args[++argNum]);
+                  break;
+
+               case "--clock": // choose the real time or virtual clock
+                  switch (args[++argNum]) {
+                     case "real":
+                        virtualClock = false;
+                        break;
+
+                     case "virtual":
+                        virtualClock = true;
+                        break;
+
+                     default:
+                        throw new NumberFormatException();
+                  }
+                  break;
+
+               case "--speed": // set the speed of the real time clock
+                  speed = Double.parseDouble(args[++argNum]);
+                  if (!(speed > 0)) {
+                     throw new NumberFormatException();
+                  }
+                  break;
+
+               case "--scenario": // start from a scenario file
+                  scenarioFile = args[++argNum];
+                  break;
+
+               case "--record": // record the run to a file
+                  recordFile = args[++argNum];
+                  break;
+
+               case "--recordinterval": // set the recording frame interval
+                  recordInterval = Integer.parseInt(args[++argNum]);
+                  break;
+
+               case "--keyinterval": // set the recording keyframe interval
+                  keyframeInterval = Integer.parseInt(args[++argNum]);
+                  break;
+
+               case "--serve": // serve a live view on a local port
+                  servePort = Integer.parseInt(args[++argNum]);
+                  break;
+
+               case "--serveinterval": // set the live view frame interval
+                  serveInterval = Integer.parseInt(args[++argNum]);
+                  break;
+
+               case "--stats": // write population statistics to a file
+                  statsFile = args[++argNum];
+                  break;
+
+               case "--statsinterval": // set the statistics sample interval
+                  statsInterval = Integer.parseInt(args[++argNum]);
+                  break;
+
                default: // Anything else is an error and we'll quit
                   System.err.println("Unrecognized switch.");
                   System.err.println(USAGE_MESSAGE);
@@ -149,31 +306,63 @@ public class Simulation {
          }
       } // for
 
+      // Pick the clock before any occupants register with it
+      clock = virtualClock ? new VirtualClock() : new RealTimeClock(speed);
+      SimulationClock.setInstance(clock);
+
+      // A scenario decides the size of the field
+      if (scenarioFile != null) {
+         try {
+            scenario = new ScenarioLoader(scenarioFile);
+         }
+         catch (IOException e) {
+            System.err.println("Unable to read scenario: " + e.getMessage());
+            System.exit(1);
+         }
+         width = scenario.getWidth();
+         height = scenario.getHeight();
+      }
+
       // Create the initial Field.
       theField = Field.getInstance(width, height);
 
-      // Set the starve time for hounds
+      // Set the starve time and hunting radius for hounds
       Hound.setStarveTime(starveTime);
+      Hound.setHuntRadius(huntRadius);
 
-      // Visit each cell; randomly placing a Fox, Hound, or nothing in each.
-      for (int i=0; i < theField.getWidth(); i++) {
-         for (int j=0; j < theField.getHeight(); j++) {
-            // If a random number is less than or equal to the probability
-            // of adding a fox, then place a fox
-            if (randomGenerator.nextFloat() <= probabilityFox) {
-               fox = new Fox(i, j);
-               theField.setOccupantAt(i, j, fox);
-               new Thread(fox).start();
-            } 
-            // Otherwise if a random number is less than or equal to the 
-            // probability of adding a hound, then place a hound. 
-            else if (randomGenerator.nextFloat() <= probabilityHound) {
-               hound = new Hound(i, j);
-               theField.setOccupantAt(i, j, hound);
-               new Thread(hound).start();
-            }
+      // Place the scenario's occupants, if there is one
+      if (scenario != null) {
+         try {
+            scenario.load(theField);
+         }
+         catch (IOException e) {
+            System.err.println("Unable to load scenario: " + e.getMessage());
+            System.exit(1);
+         }
+      }
+
+      // Otherwise visit each cell; randomly placing a Fox, Hound, or nothing
+      // in each.
+      else {
+         for (int i=0; i < theField.getWidth(); i++) {
+            for (int j=0; j < theField.getHeight(); j++) {
+               // If a random number is less than or equal to the probability
+               // of adding a fox, then place a fox
+               if (randomGenerator.nextFloat() <= probabilityFox) {
+                  fox = Fox.create(i, j);
+                  theField.setOccupantAt(i, j, fox);
+                  WorkerPool.getInstance().start(fox);
+               } 
+               // Otherwise if a random number is less than or equal to the 
+               // probability of adding a hound, then place a hound. 
+               else if (randomGenerator.nextFloat() <= probabilityHound) {
+                  hound = Hound.create(i, j);
+                  theField.setOccupantAt(i, j, hound);
+                  WorkerPool.getInstance().start(hound);
+               }
+            } // for
          } // for
-      } // for
+      } // else
 
       // If we're in graphics mode, then create the frame, canvas, 
       // and window. If not in graphics mode, these will remain null
@@ -192,19 +381,131 @@ public class Simulation {
          graphicsContext = drawingCanvas.getGraphics();
       } // if 
 
+      // Start recording with the initial state as the first keyframe
+      if (recordFile != null) {
+         try {
+            recorder = new FrameRecorder(recordFile, theField, clock,
+                                         keyframeInterval);
+            recorder.capture();
+         }
+         catch (IOException e) {
+            System.err.println("Unable to record: " + e.getMessage());
+            System.exit(1);
+         }
+      }
+
+      // Set up the statistics sampler; it starts with the simulation
+      if (statsFile != null) {
+         try {
+            sampler = new StatsSampler(theField, new StatsWriter(statsFile),
+                                       statsInterval);
+         }
+         catch (IOException e) {
+            System.err.println("Unable to write statistics: "
+                               + e.getMessage());
+            System.exit(1);
+         }
+      }
+
+      // Start the live view so browsers can watch from the beginning
+      if (servePort >= 0) {
+         try {
+            liveView = new LiveViewServer(theField, servePort);
+            System.out.println("Live view at http://localhost:"
+                               + liveView.getPort() + "/");
+         }
+         catch (IOException e) {
+            System.err.println("Unable to serve live view: "
+                               + e.getMessage());
+            System.exit(1);
+         }
+      }
+
       // Draws the Field with its Occupants so they can be seen for just a
       // second before activating the simulation. (Personal preference)
       drawField(graphicsContext);
       Thread.sleep(1000);
-      // Start by setting field to active and loop infinitely. We could
-      // optionally stop when the Field becomes empty or full, though
-      // there is no guarantee either of those will ever arise...
-      theField.isActive().set(true);
-      while (theField.isActive().get()) {
+      // Start by setting field to active and loop until the census shows
+      // the Field has gone extinct, saturated or settled into a steady state,
+      // or the time is up. Recording and steady state go by simulated time,
+      // the live view by real time. The loop takes its turns on the clock
+      // like an actor, so a virtual clock can't race past a time limit or
+      // steady state while the loop isn't looking.
+      clock.register();
+      theField.setActive(true);
+      if (sampler != null) {
+         sampler.start();
+      }
+      if (recorder != null) {
+         recorder.start();
+      }
+      String reason = null;
+      long start = clock.now();
+      long lastChange = start;
+      long lastFrame = start;
+      long lastView = System.currentTimeMillis();
+      while (reason == null) {
          // Draw the current state whenever it has been changed
-         if (theField.hasChanged().getAndSet(false))
+         if (theField.hasChanged().getAndSet(false)) {
             drawField(graphicsContext);
+            lastChange = clock.now();
+         }
+         // Record a frame whenever the interval has passed
+         if (recorder != null && clock.now() - lastFrame >= recordInterval) {
+            recorder.capture();
+            lastFrame = clock.now();
+         }
+         // Publish to the live view whenever its interval has passed
+         if (liveView != null &&
+                  System.currentTimeMillis() - lastView >= serveInterval) {
+            liveView.publish();
+            lastView = System.currentTimeMillis();
+         }
+         reason = terminationReason(theField, clock.now() - lastChange,
+                                    steadyTime * 1000L, duration > 0
+                                    ? start + duration * 1000L - clock.now()
+                                    : Long.MAX_VALUE);
+         clock.sleep(CHECK_INTERVAL);
+      }
+      long end = clock.now();
+      clock.deregister();
+
+      // Stop the occupants, show the final state and report the census
+      theField.setActive(false);
+      drawField(graphicsContext);
+      if (liveView != null) {
+         liveView.publish();
+         liveView.stop();
+      }
+      if (sampler != null) {
+         try {
+            sampler.stop();
+         }
+         catch (IOException e) {
+            System.err.println("Unable to write statistics: "
+                               + e.getMessage());
+         }
+      }
+      if (recorder != null) {
+         recorder.capture();
+         try {
+            recorder.close();
+         }
+         catch (IOException e) {
+            System.err.println("Unable to record: " + e.getMessage());
+         }
+         if (recorder.getSkipped() > 0) {
+            System.out.println(recorder.getSkipped()
+                               + " frames were skipped while recording");
+         }
       }
+      System.out.println("Simulation ended in " + reason + ": "
+                         + theField.getFoxCount() + " foxes, "
+                         + theField.getHoundCount() + " hounds after "
+                         + (end - start) + " simulated ms");
+      System.out.println("Final fingerprint: "
+                         + String.format("%016x", theField.getFingerprint()));
+      System.exit(0);
    } // main
 
-} // Simulation.java
\ No newline at end of file
+} // Simulation.java
@@ -0,0 +1,104 @@
+/**
+ * The SimulationClock class paces the actors of the simulation. Foxes and
+ * hounds rest by sleeping on the clock and hounds measure their hunger in
+ * the clock's milliseconds, so the same simulation can run against wall
+ * clock time or as fast as the actors can go.
+ *
+ * Each actor registers with the clock when it is created and deregisters
+ * when it stops running, so a clock that advances on its own knows when
+ * every actor is waiting on it. Observers such as samplers also sleep on
+ * the clock but have nothing to simulate, so they never keep it going alone.
+ */
+public abstract class SimulationClock {
+   /**
+    * @return the instance of the clock, a real time clock at normal speed
+    *         unless another one has been set
+    */
+   public static SimulationClock getInstance() {
+      if (_instance == null) {
+          _instance = new RealTimeClock(1.0);
+      }
+
+      return _instance;
+   } // getInstance
+
+
+   /**
+    * Sets the clock used by the simulation; must be done before any actors
+    * are created
+    *
+    * @param clock to use
+    */
+   public static void setInstance(SimulationClock clock) {
+      _instance = clock;
+   } // setInstance
+
+
+   /**
+    * @return the simulated time in milliseconds since the clock started
+    */
+   public abstract long now();
+
+
+   /**
+    * Sleeps the calling thread for the given simulated time
+    *
+    * @param millis simulated milliseconds to sleep
+    * @throws InterruptedException if interrupted while sleeping
+    */
+   public abstract void sleep(long millis) throws InterruptedException;
+
+
+   /**
+    * Parks the calling thread until another thread unparks it or the given
+    * simulated time passes. An unpark that comes first is remembered, so
+    * the next park returns at once; a park may also return early for no
+    * reason at all.
+    *
+    * @param maxMillis longest simulated time to stay parked
+    * @throws InterruptedException if interrupted while parked
+    */
+   public abstract void park(long maxMillis) throws InterruptedException;
+
+
+   /**
+    * Wakes the given thread if it is parked on the clock, or lets its next
+    * park return at once if it isn't
+    *
+    * @param thread to unpark
+    */
+   public abstract void unpark(Thread thread);
+
+
+   /**
+    * Records that another actor will be sleeping on the clock
+    */
+   public void register() {
+   } // register
+
+
+   /**
+    * Records that an actor has stopped and will no longer sleep on the clock
+    */
+   public void deregister() {
+   } // deregister
+
+
+   /**
+    * Records that an observer will be sleeping on the clock
+    */
+   public void registerObserver() {
+   } // registerObserver
+
+
+   /**
+    * Records that an observer will no longer sleep on the clock
+    */
+   public void deregisterObserver() {
+   } // deregisterObserver
+
+
+   // Singleton Instance of the clock
+   private static SimulationClock _instance;
+
+} // SimulationClock
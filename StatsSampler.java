@@ -0,0 +1,113 @@
+/**
+ * The StatsSampler class samples the population of the field at a fixed
+ * simulated interval and hands each sample to a StatsWriter. It sleeps on
+ * the simulation clock like the occupants do, so under the virtual clock
+ * it samples at exactly every interval however fast the run goes.
+ */
+public class StatsSampler implements Runnable {
+   /**
+    * Creates a sampler; it registers with the clock as an observer
+    *
+    * @param theField to sample
+    * @param writer to hand the samples to
+    * @param interval simulated milliseconds between samples
+    */
+   public StatsSampler(Field theField, StatsWriter writer, int interval) {
+      _field = theField;
+      _writer = writer;
+      _interval = Math.max(1, interval);
+      SimulationClock.getInstance().registerObserver();
+   } // StatsSampler
+
+
+   /**
+    * Starts sampling on a thread of its own; sample times are counted from
+    * here, like the recorded frames are from the start of the run
+    */
+   public void start() {
+      _startTime = SimulationClock.getInstance().now();
+      _thread = new Thread(this, "StatsSampler");
+      _thread.setDaemon(true);
+      _thread.start();
+   } // start
+
+
+   /**
+    * Takes a last sample, stops sampling and closes the writer
+    *
+    * @throws java.io.IOException if the statistics couldn't be written
+    */
+   public void stop() throws java.io.IOException {
+      _thread.interrupt();
+      try {
+         _thread.join();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+
+      sample();
+      _writer.close();
+   } // stop
+
+
+   /**
+    * Samples the field every interval until stopped
+    */
+   @Override
+   public void run() {
+      SimulationClock clock = SimulationClock.getInstance();
+      _births = _field.getBirths();
+      _deaths = _field.getDeaths();
+
+      try {
+         while (true) {
+            clock.sleep(_interval);
+            sample();
+         }
+      }
+      catch (InterruptedException e) {
+         // Stopped
+      }
+      finally {
+         clock.deregisterObserver();
+      }
+   } // run
+
+
+   /**
+    * Hands the current census, the births and deaths since the last sample,
+    * the hounds' mean hunger and the field's fingerprint to the writer
+    */
+   private void sample() {
+      long births = _field.getBirths();
+      long deaths = _field.getDeaths();
+
+      _writer.add(SimulationClock.getInstance().now() - _startTime,
+                  _field.getFoxCount(),
+                  _field.getHoundCount(), births - _births, deaths - _deaths,
+                  Hound.getMeanHunger(), _field.getFingerprint());
+
+      _births = births;
+      _deaths = deaths;
+   } // sample
+
+
+   // The field being sampled and where the samples go
+   private final Field _field;
+   private final StatsWriter _writer;
+
+   // Simulated milliseconds between samples
+   private final int _interval;
+
+   // Clock time sampling started at
+   private long _startTime;
+
+   // The sampling thread
+   private Thread _thread;
+
+   // Running totals of births and deaths at the last sample
+   private long _births;
+   private long _deaths;
+
+} // StatsSampler
@@ -0,0 +1,259 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The StatsWriter class writes a time series of population statistics on
+ * a background thread. Samples are gathered column by column into batches
+ * and a full batch is handed to the writer, so adding a sample costs a few
+ * array stores and the file sees large buffered writes.
+ *
+ * A file name ending in ".csv" gets one line per sample under a header
+ * line. Anything else gets the compact columnar format: the magic number,
+ * version and column count, then one block per batch holding the number
+ * of samples followed by each column in turn (time as longs, foxes,
+ * hounds, births and deaths as ints, mean hunger as doubles, the field's
+ * fingerprint as longs). CSV files show the fingerprint in hexadecimal.
+ */
+public class StatsWriter {
+   /**
+    * Creates the statistics file and starts the background writer
+    *
+    * @param fileName of the file to create
+    * @throws IOException if the file can't be created
+    */
+   public StatsWriter(String fileName) throws IOException {
+      _isCsv = fileName.toLowerCase().endsWith(".csv");
+      _output = new DataOutputStream(new BufferedOutputStream(
+                            new FileOutputStream(fileName), BUFFER_SIZE));
+
+      if (_isCsv) {
+         _output.write(CSV_HEADER.getBytes(StandardCharsets.US_ASCII));
+      }
+      else {
+         _output.writeInt(MAGIC);
+         _output.writeInt(VERSION);
+         _output.writeInt(COLUMNS);
+      }
+
+      _free = new ArrayBlockingQueue<Batch>(QUEUE_SIZE);
+      _full = new LinkedBlockingQueue<Batch>();
+      for (int i = 0; i < QUEUE_SIZE; i++) {
+         _free.add(new Batch());
+      }
+      _batch = _free.poll();
+
+      _writer = new Thread(this::writeBatches, "StatsWriter");
+      _writer.setDaemon(true);
+      _writer.start();
+   } // StatsWriter
+
+
+   /**
+    * Adds a sample; only ever called from one thread
+    *
+    * @param time of the sample in simulated milliseconds
+    * @param foxes on the field
+    * @param hounds on the field
+    * @param births since the previous sample
+    * @param deaths since the previous sample
+    * @param meanHunger of the living hounds in simulated milliseconds
+    * @param fingerprint of the field
+    */
+   public void add(long time, int foxes, int hounds, long births,
+                   long deaths, double meanHunger, long fingerprint) {
+      Batch batch = _batch;
+      int row = batch.size++;
+      batch.time[row] = time;
+      batch.foxes[row] = foxes;
+      batch.hounds[row] = hounds;
+      batch.births[row] = (int) births;
+      batch.deaths[row] = (int) deaths;
+      batch.meanHunger[row] = meanHunger;
+      batch.fingerprint[row] = fingerprint;
+
+      if (batch.size == BATCH_SIZE) {
+         _full.add(batch);
+         // Only when the writer is far behind is another batch created
+         _batch = _free.poll();
+         if (_batch == null) {
+            _batch = new Batch();
+         }
+      }
+   } // add
+
+
+   /**
+    * Writes the samples still waiting and closes the file
+    *
+    * @throws IOException if the statistics couldn't be written
+    */
+   public void close() throws IOException {
+      try {
+         if (_batch.size > 0) {
+            _full.put(_batch);
+         }
+         _full.put(CLOSE);
+         _writer.join();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+
+      _output.close();
+      if (_failure != null) {
+         throw _failure;
+      }
+   } // close
+
+
+   /**
+    * Body of the background writer: writes full batches and returns them
+    * to the pool until the file is closed
+    */
+   private void writeBatches() {
+      try {
+         Batch batch = _full.take();
+         while (batch != CLOSE) {
+            if (_failure == null) {
+               try {
+                  if (_isCsv) {
+                     writeCsv(batch);
+                  }
+                  else {
+                     writeColumns(batch);
+                  }
+               }
+               catch (IOException e) {
+                  _failure = e;
+               }
+            }
+            batch.size = 0;
+            _free.offer(batch);
+            batch = _full.take();
+         }
+      }
+      catch (InterruptedException e) {
+         // Nothing more will be written
+      }
+   } // writeBatches
+
+
+   /**
+    * Writes a batch as CSV lines
+    *
+    * @param batch to write
+    * @throws IOException if it can't be written
+    */
+   private void writeCsv(Batch batch) throws IOException {
+      StringBuilder line = new StringBuilder();
+      for (int row = 0; row < batch.size; row++) {
+         line.setLength(0);
+         line.append(batch.time[row]).append(',')
+             .append(batch.foxes[row]).append(',')
+             .append(batch.hounds[row]).append(',')
+             .append(batch.births[row]).append(',')
+             .append(batch.deaths[row]).append(',')
+             .append(Math.round(batch.meanHunger[row] * 10) / 10.0)
+             .append(',');
+         // Fixed width so fingerprints line up and compare as text
+         String fingerprint = Long.toHexString(batch.fingerprint[row]);
+         for (int i = fingerprint.length(); i < 16; i++) {
+            line.append('0');
+         }
+         line.append(fingerprint).append('\n');
+         for (int i = 0; i < line.length(); i++) {
+            _output.write(line.charAt(i));
+         }
+      }
+   } // writeCsv
+
+
+   /**
+    * Writes a batch as a block of columns
+    *
+    * @param batch to write
+    * @throws IOException if it can't be written
+    */
+   private void writeColumns(Batch batch) throws IOException {
+      _output.writeInt(batch.size);
+      for (int row = 0; row < batch.size; row++) {
+         _output.writeLong(batch.time[row]);
+      }
+      writeColumn(batch.foxes, batch.size);
+      writeColumn(batch.hounds, batch.size);
+      writeColumn(batch.births, batch.size);
+      writeColumn(batch.deaths, batch.size);
+      for (int row = 0; row < batch.size; row++) {
+         _output.writeDouble(batch.meanHunger[row]);
+      }
+      for (int row = 0; row < batch.size; row++) {
+         _output.writeLong(batch.fingerprint[row]);
+      }
+   } // writeColumns
+
+
+   /**
+    * Writes the first size values of an int column
+    *
+    * @throws IOException if it can't be written
+    */
+   private void writeColumn(int[] column, int size) throws IOException {
+      for (int row = 0; row < size; row++) {
+         _output.writeInt(column[row]);
+      }
+   } // writeColumn
+
+
+   /**
+    * A batch of samples stored column by column
+    */
+   private static class Batch {
+      final long[] time = new long[BATCH_SIZE];
+      final int[] foxes = new int[BATCH_SIZE];
+      final int[] hounds = new int[BATCH_SIZE];
+      final int[] births = new int[BATCH_SIZE];
+      final int[] deaths = new int[BATCH_SIZE];
+      final double[] meanHunger = new double[BATCH_SIZE];
+      final long[] fingerprint = new long[BATCH_SIZE];
+      int size;
+
+   } // Batch
+
+
+   // Columnar file magic ("FHST"), format version and number of columns
+   static final int MAGIC = 0x46485354;
+   static final int VERSION = 2;
+   static final int COLUMNS = 7;
+
+   // Header line of a CSV file
+   private static final String CSV_HEADER =
+      "time,foxes,hounds,births,deaths,meanhunger,fingerprint\n";
+
+   // Samples per batch, batches kept for reuse and the size of the output
+   // buffer
+   private static final int BATCH_SIZE = 1024;
+   private static final int QUEUE_SIZE = 4;
+   private static final int BUFFER_SIZE = 1 << 16;
+
+   // Marks the end of the statistics in the queue of full batches
+   private static final Batch CLOSE = new Batch();
+
+   // True to write CSV, false for columns
+   private final boolean _isCsv;
+
+   // Empty batches, full batches and the batch being filled
+   private final ArrayBlockingQueue<Batch> _free;
+   private final LinkedBlockingQueue<Batch> _full;
+   private Batch _batch;
+
+   // The writer thread and its output
+   private final Thread _writer;
+   private final DataOutputStream _output;
+   private volatile IOException _failure;
+
+} // StatsWriter
@@ -0,0 +1,409 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The StressBenchmark class is a program that runs the foxes and hounds at
+ * increasing field sizes and densities, one thread per occupant, to show
+ * how the cell locking protocol holds up as the number of threads grows.
+ * Each run uses the virtual clock so the occupants go as fast as they can,
+ * then stops them, waits for the field to settle and checks it: no dead
+ * occupant left on the field, no occupant in two cells or in a cell other
+ * than its own, and a census and neighbor counts that agree with the
+ * cells. The turns and cell locks per second, the share of locks that
+ * had to be waited for and the mean wait for those are reported next to
+ * any broken invariants, so a change that costs correctness or throughput
+ * shows up in the same table.
+ *
+ * The field, the clock and the occupants' class state are singletons, so
+ * every run is made in a fresh JVM started by this program. The occupants
+ * wait on the field until it is activated, so setting up a run grows with
+ * its size alone. With a thread per occupant, the number of threads can't
+ * be chosen apart from the field, and runs are limited to the tens of
+ * thousands of threads a JVM can start.
+ */
+public class StressBenchmark {
+   private static final String USAGE_MESSAGE = "Usage: java StressBenchmark "
+           + "[--sizes WxH,...] [--densities float,...] [--hounds float] "
+           + "[--duration int]\n"
+           + "Every occupant runs on a thread of its own, so the number of "
+           + "threads is the number\nof occupants and can't be set apart. "
+           + "Runs reach tens of thousands of occupants\n(20000 on a 160x160 "
+           + "field at 0.8); 100000 or more are beyond the threads a\nJVM usually "
+           + "can start.";
+
+
+   /**
+    * Cannot create instances of StressBenchmark
+    */
+   private StressBenchmark() {
+   } // StressBenchmark
+
+
+   /**
+    * Runs the occupants of a randomly filled field for a while, then checks
+    * the field and prints a result line for the program that started this
+    * JVM
+    *
+    * @param width of the field
+    * @param height of the field
+    * @param density chance of a cell starting with an occupant
+    * @param houndShare chance of an occupant being a hound
+    * @param duration simulated milliseconds to run for
+    * @throws InterruptedException if interrupted while running
+    */
+   private static void run(int width, int height, double density,
+                           double houndShare, long duration)
+                           throws InterruptedException {
+      SimulationClock clock = new VirtualClock();
+      SimulationClock.setInstance(clock);
+      Field theField = Field.getInstance(width, height);
+      Random randomGenerator = new Random();
+      int actors = 0;
+
+      for (int i = 0; i < width; i++) {
+         for (int j = 0; j < height; j++) {
+            if (randomGenerator.nextDouble() < density) {
+               Runnable occupant;
+               if (randomGenerator.nextDouble() < houndShare) {
+                  Hound hound = Hound.create(i, j);
+                  theField.setOccupantAt(i, j, hound);
+                  occupant = hound;
+               }
+               else {
+                  Fox fox = Fox.create(i, j);
+                  theField.setOccupantAt(i, j, fox);
+                  occupant = fox;
+               }
+               WorkerPool.getInstance().start(occupant);
+               actors++;
+            }
+         } // for
+      } // for
+
+      // Run like the Simulation does, watching on the clock until the time
+      // is up or nobody is left
+      clock.register();
+      theField.setActive(true);
+      long start = System.nanoTime();
+      while (clock.now() < duration &&
+                      theField.getFoxCount() + theField.getHoundCount() > 0) {
+         clock.sleep(CHECK_INTERVAL);
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      long simulated = clock.now();
+      long turns = theField.getTurns();
+      long locks = theField.getLockCount();
+      long contended = theField.getContendedLockCount();
+      long waitNanos = theField.getLockWaitNanos();
+
+      // Stop the occupants; each finishes the turn it is in and then idles
+      theField.setActive(false);
+      clock.deregister();
+      awaitQuiet(theField);
+
+      int violations = checkField(theField);
+      System.out.println(RESULT + " " + actors + " " + simulated + " "
+                         + turns / seconds + " " + locks / seconds + " "
+                         + (locks > 0 ? (double) contended / locks : 0) + " "
+                         + (contended > 0 ? waitNanos / 1e3 / contended : 0)
+                         + " " + violations);
+   } // run
+
+
+   /**
+    * Waits until no turn has been taken and no cell changed for a while
+    *
+    * @param theField whose occupants are stopping
+    * @throws InterruptedException if interrupted while waiting
+    */
+   private static void awaitQuiet(Field theField)
+                                  throws InterruptedException {
+      long turns;
+      long changes;
+      do {
+         turns = theField.getTurns();
+         changes = theField.getBirths() + theField.getDeaths();
+         Thread.sleep(QUIET_TIME);
+      } while (turns != theField.getTurns() ||
+               changes != theField.getBirths() + theField.getDeaths());
+   } // awaitQuiet
+
+
+   /**
+    * Checks a settled field against its invariants, reporting each one
+    * broken on the standard error
+    *
+    * @param theField to check
+    * @return the number of broken invariants found
+    */
+   private static int checkField(Field theField) {
+      Set<FieldOccupant> seen =
+         Collections.newSetFromMap(new IdentityHashMap<FieldOccupant,
+                                                       Boolean>());
+      int violations = 0;
+      int foxCount = 0;
+      int houndCount = 0;
+
+      for (int x = 0; x < theField.getWidth(); x++) {
+         for (int y = 0; y < theField.getHeight(); y++) {
+            FieldOccupant occupant = theField.getOccupantAt(x, y);
+            if (occupant != null) {
+               int[] cell = occupant.getCell();
+               if (!occupant.isAlive()) {
+                  violations += report("dead " + occupant + " at ", x, y);
+               }
+               if (!seen.add(occupant)) {
+                  violations += report("second cell for " + occupant
+                                       + " at ", x, y);
+               }
+               if (cell[0] != x || cell[1] != y) {
+                  violations += report(occupant + " from (" + cell[0] + ", "
+                                       + cell[1] + ") at ", x, y);
+               }
+               if (occupant instanceof Fox) {
+                  foxCount++;
+               }
+               else if (occupant instanceof Hound) {
+                  houndCount++;
+               }
+            }
+            if (!neighborCountsAgree(theField, x, y)) {
+               violations += report("wrong neighbor counts at ", x, y);
+            }
+         } // for
+      } // for
+
+      if (foxCount != theField.getFoxCount() ||
+                       houndCount != theField.getHoundCount()) {
+         System.err.println("Census of " + theField.getFoxCount()
+                            + " foxes and " + theField.getHoundCount()
+                            + " hounds, but the cells hold " + foxCount
+                            + " and " + houndCount);
+         violations++;
+      }
+      if (theField.getBirths() - theField.getDeaths()
+                       != foxCount + houndCount) {
+         System.err.println(theField.getBirths() + " births and "
+                            + theField.getDeaths() + " deaths, but "
+                            + (foxCount + houndCount) + " occupants");
+         violations++;
+      }
+
+      return violations;
+   } // checkField
+
+
+   /**
+    * @param theField to check
+    * @param x is the x-coordinate of the cell to check
+    * @param y is the y-coordinate of the cell to check
+    * @return true if the field's fox and hound counts around the cell
+    *         match its neighbors
+    */
+   private static boolean neighborCountsAgree(Field theField, int x, int y) {
+      int foxCount = 0;
+      int houndCount = 0;
+
+      for (int i = -1; i <= 1; i++) {
+         for (int j = -1; j <= 1; j++) {
+            FieldOccupant neighbor = theField.getOccupantAt(x + i, y + j);
+            if ((i != 0 || j != 0) && neighbor instanceof Fox) {
+               foxCount++;
+            }
+            else if ((i != 0 || j != 0) && neighbor instanceof Hound) {
+               houndCount++;
+            }
+         }
+      }
+
+      return foxCount == theField.getFoxNeighborCount(x, y) &&
+             houndCount == theField.getHoundNeighborCount(x, y);
+   } // neighborCountsAgree
+
+
+   /**
+    * Reports a broken invariant at a cell
+    *
+    * @param problem found, ending just before the cell
+    * @param x is the x-coordinate of the cell
+    * @param y is the y-coordinate of the cell
+    * @return one, the number of broken invariants reported
+    */
+   private static int report(String problem, int x, int y) {
+      System.err.println(problem + "(" + x + ", " + y + ")");
+      return 1;
+   } // report
+
+
+   /**
+    * Runs one configuration in a JVM of its own
+    *
+    * @param width of the field
+    * @param height of the field
+    * @param density chance of a cell starting with an occupant
+    * @param houndShare chance of an occupant being a hound
+    * @param duration simulated milliseconds to run for
+    * @return the numbers on the run's result line, or null if it failed
+    * @throws IOException if the JVM can't be started
+    * @throws InterruptedException if interrupted while waiting for it
+    */
+   private static String[] runApart(int width, int height, double density,
+                                    double houndShare, long duration)
+                                    throws IOException, InterruptedException {
+      String java = System.getProperty("java.home") + File.separator
+                  + "bin" + File.separator + "java";
+      ProcessBuilder builder = new ProcessBuilder(java, "-cp",
+                  System.getProperty("java.class.path"), "StressBenchmark",
+                  "--run", Integer.toString(width), Integer.toString(height),
+                  Double.toString(density), Double.toString(houndShare),
+                  Long.toString(duration));
+      builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+      Process process = builder.start();
+
+      String[] result = null;
+      try (BufferedReader output = new BufferedReader(
+                      new InputStreamReader(process.getInputStream()))) {
+         String line;
+         while ((line = output.readLine()) != null) {
+            if (line.startsWith(RESULT + " ")) {
+               result = line.substring(RESULT.length() + 1).split(" ");
+            }
+         }
+      }
+      process.waitFor();
+
+      return result;
+   } // runApart
+
+
+   /**
+    *  Main reads the parameters and runs each configuration in turn,
+    *  exiting with status 1 if any run broke an invariant.
+    */
+   public static void main(String[] args) throws InterruptedException {
+      ArrayList<int[]> sizes = new ArrayList<int[]>();
+      ArrayList<Double> densities = new ArrayList<Double>();
+      double houndShare = 0.2;                     // Default hound share
+      int duration = 10;                           // Default seconds per run
+
+      /*
+       *  Process the input parameters. Switches we understand include:
+       *  --sizes 99x99,... to set the field sizes to run
+       *  --densities 0.99,... to set the chances of a cell being occupied
+       *  --hounds 0.99 to set the chance of an occupant being a hound
+       *  --duration 999 to set the simulated seconds of each run
+       *  (--run is used internally to make a single run)
+       */
+      try {
+         if (args.length == 6 && args[0].equals("--run")) {
+            run(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                Double.parseDouble(args[3]), Double.parseDouble(args[4]),
+                Long.parseLong(args[5]));
+            System.exit(0);
+         }
+
+         for (int argNum=0; argNum < args.length; argNum++) {
+            switch(args[argNum]) {
+               case "--sizes": // set the field sizes
+                  for (String size : args[++argNum].split(",")) {
+                     String[] dimensions = size.split("x");
+                     sizes.add(new int[]{Integer.parseInt(dimensions[0]),
+                                         Integer.parseInt(dimensions[1])});
+                  }
+                  break;
+
+               case "--densities": // set the occupied cell chances
+                  for (String density : args[++argNum].split(",")) {
+                     densities.add(Double.parseDouble(density));
+                  }
+                  break;
+
+               case "--hounds": // set the hound share
+                  houndShare = Double.parseDouble(args[++argNum]);
+                  break;
+
+               case "--duration": // set the simulated seconds per run
+                  duration = Integer.parseInt(args[++argNum]);
+                  break;
+
+               default: // Anything else is an error and we'll quit
+                  System.err.println("Unrecognized switch.");
+                  System.err.println(USAGE_MESSAGE);
+                  System.exit(1);
+            } // switch
+         } // for
+      }
+      catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+         System.err.println("Illegal or missing argument.");
+         System.err.println(USAGE_MESSAGE);
+         System.exit(1);
+      }
+
+      if (sizes.isEmpty()) {
+         sizes.add(new int[]{25, 25});
+         sizes.add(new int[]{50, 50});
+         sizes.add(new int[]{100, 100});
+      }
+      if (densities.isEmpty()) {
+         densities.add(0.25);
+         densities.add(0.5);
+         densities.add(0.75);
+      }
+
+      System.out.println(String.format("%9s %7s %7s %10s %10s %10s %9s %10s",
+                         "size", "density", "actors", "sim ms", "turns/s",
+                         "locks/s", "contended", "wait us"));
+      int violations = 0;
+      for (int[] size : sizes) {
+         for (double density : densities) {
+            String[] result = null;
+            try {
+               result = runApart(size[0], size[1], density, houndShare,
+                                 duration * 1000L);
+            }
+            catch (IOException e) {
+               System.err.println("Unable to start a run: " + e.getMessage());
+            }
+
+            if (result == null) {
+               System.out.println(size[0] + "x" + size[1] + " at " + density
+                                  + ": the run failed");
+               violations++;
+            }
+            else {
+               System.out.println(String.format(
+                           "%9s %7.2f %7s %10s %10.0f %10.0f %8.2f%% %10.1f%s",
+                           size[0] + "x" + size[1], density, result[0],
+                           result[1], Double.parseDouble(result[2]),
+                           Double.parseDouble(result[3]),
+                           Double.parseDouble(result[4]) * 100,
+                           Double.parseDouble(result[5]),
+                           result[6].equals("0") ? ""
+                                 : "  " + result[6] + " VIOLATIONS"));
+               violations += Integer.parseInt(result[6]);
+            }
+         } // for
+      } // for
+
+      System.exit(violations > 0 ? 1 : 0);
+   } // main
+
+
+   // Marks the line a run prints its numbers on
+   private static final String RESULT = "RESULT";
+
+   // Simulated milliseconds between checks on a run
+   private static final int CHECK_INTERVAL = 10;
+
+   // Real milliseconds without a turn or change that mean the occupants
+   // have stopped
+   private static final int QUIET_TIME = 200;
+
+} // StressBenchmark
@@ -0,0 +1,36 @@
+/**
+ * The TurnScratch class holds the cells an occupant works with during a
+ * turn: the ones it looks at and the ones it locks. Each worker thread has
+ * its own, reused for every turn of every occupant it runs, so a turn
+ * allocates nothing.
+ */
+public class TurnScratch {
+   /**
+    * Creates the buffers for one worker
+    */
+   private TurnScratch() {
+   } // TurnScratch
+
+
+   /**
+    * @return the scratch buffers of the calling thread
+    */
+   public static TurnScratch get() {
+      return _scratch.get();
+   } // get
+
+
+   // Cells found during the turn
+   final int[] emptyCell = new int[2];
+   final int[] mateCell = new int[2];
+   final int[] foxCell = new int[2];
+   final int[] houndCell = new int[2];
+
+   // Cells to lock, sorted into the total lock order
+   final int[][] locks = new int[3][];
+
+   // Each worker thread's scratch buffers
+   private static final ThreadLocal<TurnScratch> _scratch =
+      ThreadLocal.withInitial(TurnScratch::new);
+
+} // TurnScratch
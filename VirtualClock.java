@@ -0,0 +1,288 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The VirtualClock class runs the simulation as fast as the actors can go.
+ * Simulated time stands still while any registered actor is busy; once
+ * every one of them is asleep on the clock, time jumps straight to the
+ * earliest wake-up and the actors due then are woken. Resting and hunger
+ * therefore behave exactly as they would in real time, without the wait.
+ * An actor parked until something changes counts as asleep too, with its
+ * time limit as its wake-up, and an unpark pulls it out of line early.
+ * Once only observers are left time stands still, rather than racing ahead
+ * with nothing to simulate.
+ */
+public class VirtualClock extends SimulationClock {
+   /**
+    * Creates a clock starting at time zero
+    */
+   public VirtualClock() {
+      _lock = new ReentrantLock();
+      _wakeups = new TreeSet<Sleeper>();
+      _sleeper = ThreadLocal.withInitial(() -> new Sleeper(_lock));
+      _parked = new HashMap<Thread, Sleeper>();
+      _permits = new HashSet<Thread>();
+   } // VirtualClock
+
+
+   /**
+    * @return the simulated time in milliseconds since the clock started
+    */
+   @Override
+   public long now() {
+      return _now;
+   } // now
+
+
+   /**
+    * Sleeps the calling thread until the clock reaches the given time from
+    * now; the clock may move on when this was the last busy actor
+    *
+    * @param millis simulated milliseconds to sleep
+    * @throws InterruptedException if interrupted while sleeping
+    */
+   @Override
+   public void sleep(long millis) throws InterruptedException {
+      _lock.lock();
+      try {
+         waitFor(_sleeper.get(), millis);
+      }
+      finally {
+         _lock.unlock();
+      }
+   } // sleep
+
+
+   /**
+    * Parks the calling thread until it is unparked or the clock reaches
+    * the given time from now; the clock may move on when this was the last
+    * busy actor
+    *
+    * @param maxMillis longest simulated time to stay parked
+    * @throws InterruptedException if interrupted while parked
+    */
+   @Override
+   public void park(long maxMillis) throws InterruptedException {
+      Thread thread = Thread.currentThread();
+
+      _lock.lock();
+      try {
+         // An unpark that came first lets the thread through straight away
+         if (!_permits.remove(thread)) {
+            Sleeper sleeper = _sleeper.get();
+            _parked.put(thread, sleeper);
+            try {
+               waitFor(sleeper, maxMillis);
+            }
+            finally {
+               _parked.remove(thread);
+            }
+         }
+      }
+      finally {
+         _lock.unlock();
+      }
+   } // park
+
+
+   /**
+    * Wakes the given thread if it is parked, taking it out of line so the
+    * clock waits for it again, or lets its next park return at once
+    *
+    * @param thread to unpark
+    */
+   @Override
+   public void unpark(Thread thread) {
+      _lock.lock();
+      try {
+         Sleeper sleeper = _parked.get(thread);
+         if (sleeper == null) {
+            _permits.add(thread);
+         }
+         else if (!sleeper.isDue) {
+            _wakeups.remove(sleeper);
+            sleeper.isDue = true;
+            _sleeping--;
+            sleeper.wakeup.signal();
+         }
+      }
+      finally {
+         _lock.unlock();
+      }
+   } // unpark
+
+
+   /**
+    * Puts a sleeper in line and waits until it is due. Must hold the lock.
+    *
+    * @param sleeper of the calling thread
+    * @param millis simulated milliseconds until it is due
+    * @throws InterruptedException if interrupted while waiting
+    */
+   private void waitFor(Sleeper sleeper, long millis)
+                        throws InterruptedException {
+      // A time limit too long to reach leaves the sleeper at the very end
+      sleeper.wakeTime = _now + Math.min(Math.max(0, millis),
+                                         Long.MAX_VALUE - _now);
+      sleeper.order = _order++;
+      sleeper.isDue = false;
+      _wakeups.add(sleeper);
+      _sleeping++;
+      advanceIfIdle();
+
+      try {
+         while (!sleeper.isDue) {
+            sleeper.wakeup.await();
+         }
+      }
+      catch (InterruptedException e) {
+         // Give up the place in line unless the wake-up already came
+         if (!sleeper.isDue) {
+            _wakeups.remove(sleeper);
+            _sleeping--;
+         }
+         throw e;
+      }
+   } // waitFor
+
+
+   /**
+    * Records that another actor will be sleeping on the clock
+    */
+   @Override
+   public void register() {
+      _lock.lock();
+      try {
+         _actors++;
+      }
+      finally {
+         _lock.unlock();
+      }
+   } // register
+
+
+   /**
+    * Records that an actor has stopped, which may leave every remaining
+    * actor asleep and let the clock move on
+    */
+   @Override
+   public void deregister() {
+      _lock.lock();
+      try {
+         _actors--;
+         _permits.remove(Thread.currentThread());
+         advanceIfIdle();
+      }
+      finally {
+         _lock.unlock();
+      }
+   } // deregister
+
+
+   /**
+    * Records that an observer will be sleeping on the clock; it must be
+    * asleep for time to move on, like an actor
+    */
+   @Override
+   public void registerObserver() {
+      _lock.lock();
+      try {
+         _actors++;
+         _observers++;
+      }
+      finally {
+         _lock.unlock();
+      }
+   } // registerObserver
+
+
+   /**
+    * Records that an observer will no longer sleep on the clock
+    */
+   @Override
+   public void deregisterObserver() {
+      _lock.lock();
+      try {
+         _actors--;
+         _observers--;
+         advanceIfIdle();
+      }
+      finally {
+         _lock.unlock();
+      }
+   } // deregisterObserver
+
+
+   /**
+    * When every actor is asleep, moves the clock to the earliest wake-up
+    * and wakes every actor due at that time. Must hold the lock.
+    */
+   private void advanceIfIdle() {
+      if (_sleeping >= _actors && _actors > _observers &&
+                                  !_wakeups.isEmpty()) {
+         _now = Math.max(_now, _wakeups.first().wakeTime);
+
+         while (!_wakeups.isEmpty() && _wakeups.first().wakeTime <= _now) {
+            Sleeper due = _wakeups.pollFirst();
+            due.isDue = true;
+            _sleeping--;
+            due.wakeup.signal();
+         }
+      }
+   } // advanceIfIdle
+
+
+   /**
+    * A thread's place in line for a wake-up, reused for each of its sleeps
+    */
+   private static class Sleeper implements Comparable<Sleeper> {
+      Sleeper(ReentrantLock lock) {
+         wakeup = lock.newCondition();
+      } // Sleeper
+
+      /**
+       * Orders sleepers by wake time, then by when they went to sleep
+       */
+      @Override
+      public int compareTo(Sleeper other) {
+         int result = Long.compare(wakeTime, other.wakeTime);
+         if (result == 0) {
+            result = Long.compare(order, other.order);
+         }
+         return result;
+      } // compareTo
+
+      final Condition wakeup;
+      long wakeTime;
+      long order;
+      boolean isDue;
+
+   } // Sleeper
+
+
+   // Guards everything below except the current time, which is only
+   // written under the lock but read freely
+   private final ReentrantLock _lock;
+   private volatile long _now;
+
+   // Sleepers waiting for the clock in wake-up order, which is unique, so
+   // one can be taken out of line when unparked
+   private final TreeSet<Sleeper> _wakeups;
+   private final ThreadLocal<Sleeper> _sleeper;
+   private long _order;
+
+   // Sleepers of the parked threads and the threads unparked before they
+   // parked
+   private final HashMap<Thread, Sleeper> _parked;
+   private final HashSet<Thread> _permits;
+
+   // Number of registered actors (observers included), how many of them are
+   // observers and how many of them are asleep
+   private int _actors;
+   private int _observers;
+   private int _sleeping;
+
+} // VirtualClock
@@ -0,0 +1,51 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The WorkerPool class runs the occupants of the field. Each occupant
+ * keeps a worker thread for as long as it lives; when it dies its thread
+ * goes back to the pool and runs the next occupant to be born, so births
+ * and deaths in a busy field don't create and destroy threads.
+ */
+public class WorkerPool {
+   /**
+    * Cannot create instances of WorkerPool other than the one instance
+    */
+   private WorkerPool() {
+      _executor = Executors.newCachedThreadPool(runnable -> {
+         Thread thread = new Thread(runnable, "Occupant");
+         thread.setDaemon(true);
+         return thread;
+      });
+   } // WorkerPool
+
+
+   /**
+    * @return the instance of the pool
+    */
+   public static synchronized WorkerPool getInstance() {
+      if (_instance == null) {
+         _instance = new WorkerPool();
+      }
+
+      return _instance;
+   } // getInstance
+
+
+   /**
+    * Runs an occupant on an idle worker, or on a new one if none is idle
+    *
+    * @param occupant to run until it dies
+    */
+   public void start(Runnable occupant) {
+      _executor.execute(occupant);
+   } // start
+
+
+   // Singleton Instance of the pool
+   private static WorkerPool _instance;
+
+   // Workers, of which idle ones are kept for a minute before they end
+   private final ExecutorService _executor;
+
+} // WorkerPool